@@ -0,0 +1,45 @@
+package turing.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import turing.InputException;
+import turing.TuringMachine;
+
+/**
+ * Locates the machine descriptions and input files in the repository. Benchmarks are
+ * expected to run from the repository root, or with -Dturing.home pointing at it.
+ **/
+final class Corpus {
+
+	private static final String HOME = System.getProperty("turing.home", ".");
+
+	private Corpus() {
+	}
+
+	static String description(String machine) {
+		return Paths.get(HOME, "machine_descriptions", machine + ".txt").toString();
+	}
+
+	/**
+	 * A file in the repository, given by its path from the root.
+	 **/
+	static Path file(String first, String... more) {
+		return Paths.get(HOME, first).resolve(Paths.get("", more));
+	}
+
+	static TuringMachine load(String machine) throws IOException, InputException {
+		TuringMachine turing_machine = new TuringMachine();
+		turing_machine.initialise(description(machine));
+		return turing_machine;
+	}
+
+	static List<String> largeInputs(String outcome, String machine) throws IOException {
+		Path path = Paths.get(HOME, "test_inputs", outcome + "_" + machine + "_large.txt");
+		return Files.readAllLines(path);
+	}
+
+}
@@ -0,0 +1,86 @@
+package turing.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import turing.Engine;
+import turing.Evaluator;
+import turing.InputException;
+import turing.Result;
+import turing.TuringMachine;
+
+/**
+ * Runs the interpreter over the large corpora with and without cycle detection, as
+ * ExecutionBenchmark does. None of these machines loop, so the difference in steps per
+ * second is the cost of the detector on runs it never cuts short.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CycleDetectionBenchmark {
+
+	@Param({"binary", "counter", "digital", "identity", "palindrome"})
+	public String machine;
+
+	@Param({"accept", "reject"})
+	public String outcome;
+
+	@Param({"false", "true"})
+	public boolean detect;
+
+	private Evaluator context;
+	private List<String> inputs;
+	private int next;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Steps {
+
+		public long steps;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			steps = 0;
+		}
+
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		TuringMachine turing_machine = Corpus.load(machine);
+		turing_machine.setEngine(Engine.named("interpreter"));
+		turing_machine.setCycleDetection(detect);
+		context = turing_machine.newRunContext(new PrintStream(OutputStream.nullOutputStream()));
+		inputs = Corpus.largeInputs(outcome, machine);
+		next = 0;
+	}
+
+	@Benchmark
+	public Result canAccept(Steps counter) throws InputException {
+		String input = inputs.get(next);
+		next = next + 1 == inputs.size() ? 0 : next + 1;
+		Result result = context.run(input, false, false);
+		counter.steps += context.getNumberOfSteps();
+		return result;
+	}
+
+}
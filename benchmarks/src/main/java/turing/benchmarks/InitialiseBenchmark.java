@@ -0,0 +1,61 @@
+package turing.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import turing.TuringMachine;
+
+/**
+ * Measures parsing, validating and compiling each machine description, against
+ * loading the same machine from a precompiled .tmc file.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitialiseBenchmark {
+
+	@Param({"binary", "counter", "digital", "identity", "palindrome"})
+	public String machine;
+
+	private String compiled;
+
+	@Setup
+	public void setup() throws Exception {
+		File file = File.createTempFile(machine, ".tmc");
+		file.deleteOnExit();
+		compiled = file.getPath();
+		TuringMachine turing_machine = new TuringMachine();
+		turing_machine.initialise(Corpus.description(machine));
+		turing_machine.save(compiled);
+	}
+
+	@Benchmark
+	public TuringMachine initialise() throws Exception {
+		TuringMachine turing_machine = new TuringMachine();
+		turing_machine.initialise(Corpus.description(machine));
+		return turing_machine;
+	}
+
+	@Benchmark
+	public TuringMachine load() throws Exception {
+		TuringMachine turing_machine = new TuringMachine();
+		turing_machine.initialise(compiled);
+		return turing_machine;
+	}
+
+}
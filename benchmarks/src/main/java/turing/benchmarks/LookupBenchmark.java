@@ -0,0 +1,82 @@
+package turing.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import turing.CompiledMachine;
+import turing.InputException;
+
+/**
+ * Measures the transition lookup on its own, over a fixed pseudo-random sequence of
+ * (state, symbol) pairs that all have a transition.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+	private static final int LOOKUPS = 1024;
+
+	@Param({"binary", "counter", "digital", "identity", "palindrome"})
+	public String machine;
+
+	private CompiledMachine compiled;
+	private int[] states = new int[LOOKUPS];
+	private char[] inputs = new char[LOOKUPS];
+
+	@Setup
+	public void setup() throws Exception {
+		compiled = Corpus.load(machine).getCompiledMachine();
+
+		ArrayList<int[]> pairs = new ArrayList<int[]>();
+		char[] symbols = compiled.getSymbols();
+		for(int state = 0; state < compiled.getStateCount(); state++)
+			for(char symbol : symbols)
+				if(hasTransition(state, symbol))
+					pairs.add(new int[] {state, symbol});
+
+		Random random = new Random(42);
+		for(int i = 0; i < LOOKUPS; i++) {
+			int[] pair = pairs.get(random.nextInt(pairs.size()));
+			states[i] = pair[0];
+			inputs[i] = (char) pair[1];
+		}
+	}
+
+	private boolean hasTransition(int state, char symbol) {
+		try {
+			compiled.find(state, symbol);
+			return true;
+		}
+		catch(InputException e) {
+			return false;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int find() throws InputException {
+		int sum = 0;
+		for(int i = 0; i < LOOKUPS; i++)
+			sum += compiled.find(states[i], inputs[i]);
+		return sum;
+	}
+
+}
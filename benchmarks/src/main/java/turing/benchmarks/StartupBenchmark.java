@@ -0,0 +1,113 @@
+package turing.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Starts runtm as a new process on a small machine and input file and times it until
+ * the first result is printed, which for so little work is almost all start-up. The
+ * rest of the output and the process exiting are left out of the timing. The launcher
+ * is the plain jar, the jar with the class data archive built by mvn package -Pappcds,
+ * or the native image built by mvn package -Pnative.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 30)
+@Fork(1)
+public class StartupBenchmark {
+
+	@Param({"jar", "appcds", "native"})
+	public String launcher;
+
+	private List<String> command;
+	private Process process;
+	private BufferedReader reader;
+
+	@Setup
+	public void setup() throws IOException {
+		Path jar = Corpus.file("cli", "target", "runtm.jar");
+		Path archive = Corpus.file("cli", "target", "runtm.jsa");
+		Path image = Corpus.file("cli", "target", "runtm");
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+		command = new ArrayList<String>();
+		switch(launcher) {
+			case "jar":
+				require(jar, "mvn package");
+				command.add(java);
+				command.add("-jar");
+				command.add(jar.toString());
+				break;
+			case "appcds":
+				require(jar, "mvn package -Pappcds");
+				require(archive, "mvn package -Pappcds");
+				command.add(java);
+				command.add("-XX:SharedArchiveFile=" + archive);
+				command.add("-jar");
+				command.add(jar.toString());
+				break;
+			case "native":
+				require(image, "mvn package -Pnative");
+				command.add(image.toString());
+				break;
+			default:
+				throw new IllegalArgumentException("Error: unknown launcher " + launcher);
+		}
+		command.add(Corpus.description("identity"));
+		command.add(Corpus.file("test_inputs", "accept_identity.txt").toString());
+	}
+
+	private static void require(Path path, String build) throws IOException {
+		if(!Files.exists(path))
+			throw new IOException("Error: " + path + " is missing, build it with " + build);
+	}
+
+	/**
+	 * Returns as soon as a result has been read. Every result message starts with
+	 * "input", which the screen clear and any warnings before it do not.
+	 **/
+	@Benchmark
+	public String run() throws IOException {
+		process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line = reader.readLine();
+		while(line != null && !line.contains("input "))
+			line = reader.readLine();
+		return line;
+	}
+
+	/**
+	 * Reads the rest of the output and waits for the process to exit, outside the
+	 * timing, so that runs do not overlap.
+	 **/
+	@TearDown(Level.Invocation)
+	public void finish() throws IOException, InterruptedException {
+		while(reader.readLine() != null);
+		reader.close();
+		process.waitFor();
+	}
+
+}
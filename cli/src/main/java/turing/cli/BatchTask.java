@@ -0,0 +1,77 @@
+package turing.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import turing.InputException;
+import turing.Evaluator;
+import turing.TuringMachine;
+
+public class BatchTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Below this many inputs a task evaluates its range directly instead of splitting.
+	 * Large inputs can take millions of steps each, so ranges are kept small enough
+	 * for work stealing to balance them across threads.
+	 **/
+	private static final int THRESHOLD = 8;
+
+	private final TuringMachine machine;
+	private final List<String> inputs;
+	private final String[] results;
+	private final boolean[] failed;
+	private final boolean p_mode;
+	private final int from;
+	private final int to;
+
+	/**
+	 * Evaluates inputs[from, to) against the machine, storing the console output for
+	 * each input in results at the same index so that it can be printed in input order
+	 * once every task has finished. If an input raises an InputException, its message
+	 * is stored instead and failed is set for that index.
+	 **/
+	public BatchTask(TuringMachine machine, List<String> inputs, String[] results, boolean[] failed,
+			boolean p_mode, int from, int to) {
+		this.machine = machine;
+		this.inputs = inputs;
+		this.results = results;
+		this.failed = failed;
+		this.p_mode = p_mode;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+		if(to - from <= THRESHOLD) {
+			evaluate();
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		invokeAll(new BatchTask(machine, inputs, results, failed, p_mode, from, middle),
+				new BatchTask(machine, inputs, results, failed, p_mode, middle, to));
+	}
+
+	private void evaluate() {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(buffer);
+		Evaluator context = machine.newRunContext(out);
+		for(int i = from; i < to; i++) {
+			buffer.reset();
+			try {
+				out.println(context.run(inputs.get(i), false, p_mode).getMessage());
+				out.flush();
+				results[i] = buffer.toString();
+			}
+			catch(InputException e) {
+				results[i] = buffer.toString() + e.getMessage() + System.lineSeparator();
+				failed[i] = true;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+package turing.cli;
+
+/**
+ * A reusable line of input. LineReader refills the same character array for every line,
+ * so reading a file allocates nothing per line once the array is as long as the longest
+ * line.
+ **/
+public class InputLine implements CharSequence {
+
+	private char[] characters = new char[256];
+	private int length = 0;
+
+	void clear() {
+		length = 0;
+	}
+
+	void append(char c) {
+		if(length == characters.length) {
+			char[] grown = new char[characters.length * 2];
+			System.arraycopy(characters, 0, grown, 0, length);
+			characters = grown;
+		}
+		characters[length++] = c;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(index >= length)
+			throw new IndexOutOfBoundsException(index);
+		return characters[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return new String(characters, 0, length);
+	}
+
+}
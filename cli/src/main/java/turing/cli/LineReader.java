@@ -0,0 +1,101 @@
+package turing.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an input file one line at a time through a file channel and a pair of fixed
+ * buffers, so memory use does not grow with the size of the file and the first line is
+ * available as soon as the first block has been read. Lines end only at "\n", "\r\n"
+ * or "\r"; other Unicode line separators are part of the line. The file is decoded as
+ * UTF-8 whatever the platform charset, and malformed bytes become U+FFFD.
+ **/
+public class LineReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final CharBuffer characters = CharBuffer.allocate(BUFFER_SIZE);
+	private final InputLine line = new InputLine();
+
+	private boolean end_of_input = false;
+	private boolean flushed = false;
+	private boolean skip_line_feed = false;
+
+	public LineReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		characters.flip();
+	}
+
+	/**
+	 * Returns the next line, or null at the end of the file. The same InputLine is
+	 * returned every time and is overwritten by the next call.
+	 **/
+	public InputLine nextLine() throws IOException {
+		line.clear();
+		boolean any = false;
+		while(true) {
+			if(!characters.hasRemaining() && !fill())
+				return any ? line : null;
+			char c = characters.get();
+			if(skip_line_feed) {
+				skip_line_feed = false;
+				if(c == '\n')
+					continue;
+			}
+			any = true;
+			if(c == '\n')
+				return line;
+			if(c == '\r') {
+				skip_line_feed = true;
+				return line;
+			}
+			line.append(c);
+		}
+	}
+
+	/**
+	 * Decodes the next block of the file into the character buffer. Returns false once
+	 * there is nothing left.
+	 **/
+	private boolean fill() throws IOException {
+		if(flushed)
+			return false;
+		characters.clear();
+		while(characters.position() == 0) {
+			if(!end_of_input && channel.read(bytes) < 0)
+				end_of_input = true;
+			bytes.flip();
+			CoderResult result = decoder.decode(bytes, characters, end_of_input);
+			if(result.isError())
+				result.throwException();
+			bytes.compact();
+			if(end_of_input) {
+				decoder.flush(characters);
+				flushed = true;
+				break;
+			}
+		}
+		characters.flip();
+		return characters.hasRemaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
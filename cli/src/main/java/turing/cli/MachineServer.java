@@ -0,0 +1,269 @@
+package turing.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import turing.DecisionCache;
+import turing.Engine;
+import turing.Evaluator;
+import turing.InputException;
+import turing.Result;
+import turing.TuringMachine;
+
+public class MachineServer {
+
+	/**
+	 * How many requests from one connection may be waiting or running at once before
+	 * the server stops reading more from it.
+	 **/
+	private static final int MAX_IN_FLIGHT = 1024;
+
+	private static final PrintStream NO_OUTPUT = new PrintStream(OutputStream.nullOutputStream());
+
+	private final ExecutorService workers;
+	private final Engine engine;
+	private final long max_steps;
+	private final long timeout;
+	private final boolean detecting_cycles;
+	private final DecisionCache cache;
+
+	/**
+	 * The token that stands for the empty input in a request, which could not be told
+	 * apart from the spaces around it otherwise.
+	 **/
+	static final String EMPTY_INPUT = "\"\"";
+
+	/**
+	 * Machines by the path they were loaded from, and by content hash, so that two
+	 * descriptions of the same machine share one compiled machine. A machine is kept by
+	 * its hash only while some path is still loaded as it, and both maps are only
+	 * changed while holding the lock of by_hash.
+	 **/
+	private final ConcurrentHashMap<String, Loaded> by_path = new ConcurrentHashMap<String, Loaded>();
+	private final ConcurrentHashMap<Long, TuringMachine> by_hash = new ConcurrentHashMap<Long, TuringMachine>();
+
+	private static final class Loaded {
+		final long modified;
+		final long size;
+		final long hash;
+		final TuringMachine machine;
+
+		Loaded(long modified, long size, long hash, TuringMachine machine) {
+			this.modified = modified;
+			this.size = size;
+			this.hash = hash;
+			this.machine = machine;
+		}
+	}
+
+	/**
+	 * A server keeps every machine it has been asked for loaded, so that later requests
+	 * for it skip starting the JVM and parsing the description, and evaluates requests
+	 * on a pool of the given number of threads. A machine is loaded again if its file
+	 * has changed since. The engine, limits, cycle detection and decision cache apply
+	 * to every machine, and the cache is shared between them all.
+	 *
+	 * Requests are lines of the form 'id machine input...', where the machine is the
+	 * path of a description or .tmc file and each input is one word, with "" for the
+	 * empty input, and are answered with 'id result steps...', one result and step
+	 * count per input, or 'id ERROR message'. Requests are pipelined: each is handed
+	 * to the pool as soon as it is read, and answered as soon as it is decided, so
+	 * answers can come back in a different order from the requests and the id is what
+	 * ties them together.
+	 **/
+	public MachineServer(int threads, Engine engine, long max_steps, long timeout, boolean detecting_cycles, DecisionCache cache) {
+		this.workers = Executors.newFixedThreadPool(threads);
+		this.engine = engine;
+		this.max_steps = max_steps;
+		this.timeout = timeout;
+		this.detecting_cycles = detecting_cycles;
+		this.cache = cache;
+	}
+
+	/**
+	 * Answers the requests read from the stream until it ends, then waits for the last
+	 * of them to be answered.
+	 **/
+	public void serve(InputStream in, OutputStream out) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		Semaphore in_flight = new Semaphore(MAX_IN_FLIGHT);
+		for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+			if(line.isBlank())
+				continue;
+			String request = line;
+			in_flight.acquireUninterruptibly();
+			workers.execute(() -> {
+				try {
+					respond(writer, handle(request));
+				}
+				finally {
+					in_flight.release();
+				}
+			});
+		}
+		in_flight.acquireUninterruptibly(MAX_IN_FLIGHT);
+		writer.flush();
+	}
+
+	/**
+	 * Listens on a Unix domain socket at the given path, replacing any file already
+	 * there, and answers each connection's requests as serve does, until the process
+	 * is stopped. Each connection is read by a thread of its own, and all of them
+	 * share the pool the requests are evaluated on.
+	 **/
+	public void listen(String path) throws IOException {
+		UnixDomainSocketAddress address = UnixDomainSocketAddress.of(path);
+		Files.deleteIfExists(address.getPath());
+		try(ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(address);
+			while(true) {
+				SocketChannel channel = server.accept();
+				Thread connection = new Thread(() -> {
+					try(SocketChannel open = channel) {
+						serve(Channels.newInputStream(open), output(open));
+					}
+					catch(IOException e) {
+						// the client went away
+					}
+				});
+				connection.setDaemon(true);
+				connection.start();
+			}
+		}
+	}
+
+	/**
+	 * Channels.newOutputStream would wait for the lock a blocked read of the same
+	 * channel holds, so answers are written to the channel directly.
+	 **/
+	private static OutputStream output(SocketChannel channel) {
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] {(byte) b}, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+			}
+		};
+	}
+
+	public void shutdown() {
+		workers.shutdown();
+	}
+
+	private static void respond(Writer writer, String response) {
+		synchronized(writer) {
+			try {
+				writer.write(response);
+				writer.write('\n');
+				writer.flush();
+			}
+			catch(IOException e) {
+				// the client went away; the rest of its requests are still drained
+			}
+		}
+	}
+
+	/**
+	 * Evaluates every input of one request on a run context of its own, stopping at
+	 * the first that raises an InputException just as runtm does.
+	 **/
+	String handle(String request) {
+		String[] fields = request.trim().split("\\s+");
+		String id = fields[0];
+		if(fields.length < 2)
+			return id + " ERROR Error: requests are of the form 'id machine input...', with " + EMPTY_INPUT
+					+ " for the empty input";
+
+		StringBuilder response = new StringBuilder(id);
+		try {
+			Evaluator context = machine(fields[1]).newRunContext(NO_OUTPUT);
+			for(int i = 2; i < fields.length; i++) {
+				Result result = context.run(fields[i].equals(EMPTY_INPUT) ? "" : fields[i], false, false);
+				response.append(' ').append(result.name()).append(' ').append(context.getNumberOfSteps());
+			}
+		}
+		catch(IOException e) {
+			return id + " ERROR Error: could not read " + fields[1];
+		}
+		catch(InputException e) {
+			return id + " ERROR " + e.getMessage();
+		}
+		return response.toString();
+	}
+
+	/**
+	 * Returns the machine loaded from the path, loading it if it has not been yet or
+	 * its file has changed since. Two threads asking for the same new machine at once
+	 * may both load it, but only one copy is kept. A machine that no path is loaded as
+	 * any more is forgotten, so reloading a file as it is edited does not keep every
+	 * version of it.
+	 **/
+	private TuringMachine machine(String path) throws IOException, InputException {
+		File file = new File(path);
+		long modified = file.lastModified();
+		long size = file.length();
+		Loaded loaded = by_path.get(path);
+		if(loaded != null && loaded.modified == modified && loaded.size == size)
+			return loaded.machine;
+
+		TuringMachine machine = new TuringMachine();
+		machine.initialise(path);
+		machine.setEngine(engine);
+		machine.setMaxSteps(max_steps);
+		machine.setTimeout(timeout);
+		machine.setCycleDetection(detecting_cycles);
+		machine.setDecisionCache(cache);
+		long hash = machine.getCompiledMachine().getContentHash();
+		synchronized(by_hash) {
+			TuringMachine shared = by_hash.putIfAbsent(hash, machine);
+			if(shared != null)
+				machine = shared;
+			Loaded replaced = by_path.put(path, new Loaded(modified, size, hash, machine));
+			if(replaced != null && replaced.machine != machine && !isLoaded(replaced.machine))
+				by_hash.remove(replaced.hash, replaced.machine);
+		}
+		return machine;
+	}
+
+	private boolean isLoaded(TuringMachine machine) {
+		for(Loaded loaded : by_path.values())
+			if(loaded.machine == machine)
+				return true;
+		return false;
+	}
+
+	/**
+	 * The number of machines kept loaded, however many paths they are loaded as.
+	 **/
+	int getMachineCount() {
+		return by_hash.size();
+	}
+
+}
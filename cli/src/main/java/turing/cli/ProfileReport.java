@@ -0,0 +1,65 @@
+package turing.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+import turing.CompiledMachine;
+import turing.Profile;
+
+/**
+ * Writes the profile of each input to a file as it is decided, followed by the totals
+ * for the whole batch. The file is JSON if its name ends in .json and CSV otherwise.
+ * Inputs are labelled by their line number in the input file.
+ **/
+public class ProfileReport {
+
+	private static final String JSON_EXTENSION = ".json";
+	private static final String TOTAL = "total";
+
+	private final PrintStream out;
+	private final boolean json;
+	private final Profile total;
+	private int inputs = 0;
+
+	public ProfileReport(String path, CompiledMachine machine) throws FileNotFoundException {
+		out = new PrintStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16), false);
+		json = path.endsWith(JSON_EXTENSION);
+		total = new Profile(machine);
+
+		if(json)
+			out.print("{\"inputs\":[");
+		else
+			Profile.writeCsvHeader(out);
+	}
+
+	public void add(Profile profile) {
+		inputs++;
+		if(json) {
+			if(inputs > 1)
+				out.print(',');
+			out.println();
+			profile.writeJson(out, String.valueOf(inputs));
+		}
+		else
+			profile.writeCsv(out, String.valueOf(inputs));
+		total.add(profile);
+	}
+
+	/**
+	 * Writes the totals and closes the file.
+	 **/
+	public void close() {
+		if(json) {
+			out.println("],");
+			out.print("\"total\":");
+			total.writeJson(out, TOTAL);
+			out.println("}");
+		}
+		else
+			total.writeCsv(out, TOTAL);
+		out.close();
+	}
+
+}
@@ -0,0 +1,89 @@
+package turing.cli;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import turing.CompiledMachine;
+import turing.InputException;
+import turing.Result;
+import turing.RunContext;
+import turing.Tape;
+import turing.TraceReader;
+
+/**
+ * Replays a trace written with --trace against the machine it was written for, printing
+ * each run exactly as -I would have: the used part of the tape after every transition,
+ * then the transition, then the result.
+ **/
+public class TraceViewer {
+
+	/**
+	 * How long each transition stays on screen when animating, in milliseconds, and
+	 * the shorter time used once the tape is too wide to show in full.
+	 **/
+	private static final long FRAME_TIME = 80;
+	private static final long FAST_FRAME_TIME = 10;
+
+	private final CompiledMachine machine;
+	private final PrintStream out;
+	private final boolean animate;
+	private final Tape tape = new Tape();
+	private final StringBuilder line = new StringBuilder();
+
+	/**
+	 * With animate set, the viewer pauses after each transition so that the run can be
+	 * followed by eye, as -I used to.
+	 **/
+	public TraceViewer(CompiledMachine machine, PrintStream out, boolean animate) {
+		this.machine = machine;
+		this.out = out;
+		this.animate = animate;
+	}
+
+	/**
+	 * Replays every run in the trace file. Throws an InputException if the file is not a
+	 * trace of this machine.
+	 **/
+	public void replay(String trace_file) throws IOException, InputException {
+		try(TraceReader reader = new TraceReader(new FileInputStream(trace_file), machine)) {
+			for(String input = reader.nextRun(); input != null; input = reader.nextRun()) {
+				tape.load(input);
+				int position = 0;
+				for(int t = reader.nextStep(); t != TraceReader.END_OF_RUN; t = reader.nextStep()) {
+					tape.write(position, machine.getOutput(t));
+					position += machine.getMove(t);
+					show(t);
+				}
+
+				Result result = reader.getResult();
+				if(result == null) {
+					out.println("Error: there is no transition possible given the state and input.");
+					break;
+				}
+				out.println(result.getMessage());
+			}
+		}
+		out.println("########################");
+	}
+
+	private void show(int t) {
+		line.setLength(0);
+		boolean cut_short = tape.appendTo(line, RunContext.SCREEN_SIZE);
+		if(cut_short)
+			line.append("...");
+		out.println(line);
+		out.println(machine.getTransition(t).print());
+
+		if(animate) {
+			out.flush();
+			try {
+				Thread.sleep(cut_short ? FAST_FRAME_TIME : FRAME_TIME);
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,644 @@
+package turing.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import turing.Checkpoints;
+import turing.InputException;
+import turing.Engine;
+import turing.DecisionCache;
+import turing.Evaluator;
+import turing.InProcessMetrics;
+import turing.MachineAnalysis;
+import turing.PrefixSnapshots;
+import turing.State;
+import turing.TraceWriter;
+import turing.Transition;
+import turing.TuringMachine;
+
+public class runtm {
+
+	public static final int MIN_NUM_ARGS = 2;
+	public static final int ARGS_WITH_FLAG = 3;
+
+	private static boolean in_performance_mode = false;
+	private static final String PERFORMANCE_FLAG = "-P";
+	private static boolean in_interactive_mode = false;
+	private static final String INTERACTIVE_FLAG = "-I";
+	private static int jobs = 1;
+	private static final String JOBS_FLAG = "-j";
+	private static long max_steps = Long.MAX_VALUE;
+	private static final String MAX_STEPS_FLAG = "-s";
+	private static long timeout = 0;
+	private static final String TIMEOUT_FLAG = "-t";
+	private static Engine engine = Engine.INTERPRETER;
+	private static final String ENGINE_FLAG = "-e";
+	private static final String COMPILE_COMMAND = "--compile";
+	private static final String CHECK_COMMAND = "--check";
+	private static final String SERVE_COMMAND = "--serve";
+	private static String profile_file = null;
+	private static final String PROFILE_FLAG = "--profile";
+	private static InProcessMetrics metrics = null;
+	private static final String METRICS_FLAG = "--metrics";
+	private static String trace_file = null;
+	private static final String TRACE_FLAG = "--trace";
+	private static final String REPLAY_COMMAND = "--replay";
+	private static final String ANIMATE_FLAG = "--animate";
+	private static int cache_size = 0;
+	private static final String CACHE_FLAG = "--cache";
+	private static String cache_file = null;
+	private static final String CACHE_FILE_FLAG = "--cache-file";
+	private static boolean nondeterministic = false;
+	private static final String NONDETERMINISTIC_FLAG = "-n";
+	private static long configuration_budget = Long.MAX_VALUE;
+	private static final String BUDGET_FLAG = "-b";
+	private static boolean detecting_cycles = false;
+	private static final String CYCLES_FLAG = "--detect-cycles";
+	private static long snapshot_cells = 0;
+	private static final String SNAPSHOTS_FLAG = "--prefix-snapshots";
+	private static String checkpoint_file = null;
+	private static final String CHECKPOINT_FLAG = "--checkpoint";
+	private static long checkpoint_interval = 1000000000L;
+	private static final String CHECKPOINT_INTERVAL_FLAG = "--checkpoint-interval";
+	private static String resume_file = null;
+	private static final String RESUME_FLAG = "--resume";
+
+	/**
+	 * Every optional flag, those followed by a value and those that stand alone. Each
+	 * may be given once, which bounds the number of arguments runtm accepts.
+	 **/
+	private static final String[] VALUE_FLAGS = {JOBS_FLAG, MAX_STEPS_FLAG, TIMEOUT_FLAG, ENGINE_FLAG,
+			PROFILE_FLAG, TRACE_FLAG, CACHE_FLAG, CACHE_FILE_FLAG, BUDGET_FLAG, SNAPSHOTS_FLAG, CHECKPOINT_FLAG,
+			CHECKPOINT_INTERVAL_FLAG, RESUME_FLAG};
+	private static final String[] SWITCH_FLAGS = {PERFORMANCE_FLAG, INTERACTIVE_FLAG, METRICS_FLAG,
+			NONDETERMINISTIC_FLAG, CYCLES_FLAG};
+	public static final int ARGS_ALL_FLAGS = MIN_NUM_ARGS + SWITCH_FLAGS.length + 2 * VALUE_FLAGS.length;
+
+	/**
+	 * The flags that mean something to --serve, which applies them to every machine.
+	 **/
+	private static final List<String> SERVE_FLAGS = List.of(JOBS_FLAG, ENGINE_FLAG, MAX_STEPS_FLAG, TIMEOUT_FLAG,
+			CYCLES_FLAG, CACHE_FLAG, CACHE_FILE_FLAG);
+
+	/**
+	 * The decision cache holds this many decisions unless --cache says otherwise, and
+	 * never more than this many characters of input between them.
+	 **/
+	private static final int DEFAULT_CACHE_SIZE = 100000;
+	private static final long CACHE_CHARS = 1L << 24;
+
+	/**
+	 * In parallel mode the input file is read this many lines at a time, so that memory
+	 * use stays the same however long the file is.
+	 **/
+	private static final int WINDOW_SIZE = 4096;
+
+	/**
+	 * Results are written through a buffer, which a thread of its own flushes this often
+	 * (in milliseconds), so that a result is never held back for longer than this by
+	 * the inputs after it, however long they take.
+	 **/
+	private static final long FLUSH_INTERVAL = 50;
+	private static PrintStream output;
+
+	/**
+	 * The machine is initialised, the input file is opened for reading line by line,
+	 * and the screen is cleared.
+	 **/
+	public static void main(String[] args) {
+		if(args.length > 0 && args[0].equals(COMPILE_COMMAND)) {
+			compile(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equals(REPLAY_COMMAND)) {
+			replay(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equals(CHECK_COMMAND)) {
+			check(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equals(SERVE_COMMAND)) {
+			serve(args);
+			return;
+		}
+
+		check(args.length);
+
+		TuringMachine machine = new TuringMachine();
+		machine.setNondeterministic(hasFlag(args, NONDETERMINISTIC_FLAG));
+
+		try {
+			machine.initialise(args[0]);
+		} 
+		catch (FileNotFoundException | InputException e) {
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
+
+		//printMachineDescription(machine);
+
+		LineReader inputs = getInputFrom(args[1]);
+
+		getAllFlags(args);		
+
+		machine.setEngine(engine);
+		machine.setMaxSteps(max_steps);
+		machine.setTimeout(timeout);
+		machine.setProfiling(profile_file != null);
+		machine.setCycleDetection(detecting_cycles);
+		machine.setMetrics(metrics);
+		DecisionCache cache = getCache();
+		machine.setDecisionCache(cache);
+		machine.setConfigurationBudget(configuration_budget);
+		machine.setBranchThreads(jobs);
+		PrefixSnapshots snapshots = snapshot_cells > 0 ? new PrefixSnapshots(snapshot_cells) : null;
+		machine.setPrefixSnapshots(snapshots);
+		Checkpoints checkpoints = getCheckpoints(machine);
+		machine.setCheckpoints(checkpoints);
+
+		ProfileReport report = null;
+		if(profile_file != null) {
+			try {
+				report = new ProfileReport(profile_file, machine.getCompiledMachine());
+			}
+			catch(FileNotFoundException e) {
+				System.out.println("Error: could not write the profile to " + profile_file);
+				System.exit(1);
+			}
+		}
+
+		TraceWriter trace = null;
+		if(trace_file != null) {
+			try {
+				trace = new TraceWriter(new FileOutputStream(trace_file), machine.getCompiledMachine());
+			}
+			catch(FileNotFoundException e) {
+				System.out.println("Error: could not write the trace to " + trace_file);
+				System.exit(1);
+			}
+			machine.setTrace(trace);
+		}
+
+		clearScreen();
+		new MachineAnalysis(machine.getCompiledMachine(), false).warn(System.err, !nondeterministic);
+
+		output = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+		startFlushing();
+
+		try {
+			if(jobs > 1 && !in_interactive_mode && !nondeterministic && report == null && trace == null)
+				runInParallel(machine, inputs);
+			else
+				run(machine, inputs, report);
+			inputs.close();
+		}
+		catch(IOException e) {
+			output.println("Error: could not read the input file: " + e.getMessage());
+		}
+		if(report != null)
+			report.close();
+		if(trace != null) {
+			try {
+				trace.close();
+			}
+			catch(IOException e) {
+				output.println("Error: could not write the trace to " + trace_file + ": " + e.getMessage());
+			}
+		}
+		if(checkpoints != null) {
+			try {
+				checkpoints.close();
+			}
+			catch(IOException e) {
+				output.println("Error: could not write the checkpoint to " + checkpoint_file + ": " + e.getMessage());
+			}
+		}
+		if(metrics != null)
+			metrics.printSummary(output);
+		if(cache != null) {
+			if(metrics != null)
+				output.println("Decision cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+						+ cache.getEvictions() + " evictions, " + cache.size() + " entries");
+			saveCache(cache);
+		}
+		if(snapshots != null && metrics != null)
+			output.println("Prefix snapshots: " + snapshots.getHits() + " hits, " + snapshots.getMisses() + " misses, "
+					+ snapshots.getSkippedSteps() + " steps skipped, " + snapshots.getEvictions() + " evictions, "
+					+ snapshots.size() + " entries");
+		if(checkpoints != null && metrics != null)
+			output.println("Checkpoints: " + checkpoints.getTaken() + " taken, " + checkpoints.getWritten() + " written, "
+					+ checkpoints.getResumed() + " runs resumed, " + checkpoints.getSkippedSteps() + " steps skipped");
+		output.flush();
+	}
+
+	/**
+	 * Creates the checkpoints if --checkpoint or --resume was given. --resume loads the
+	 * checkpoints saved in its file, and unless --checkpoint names another file, later
+	 * checkpoints are written back to the same one.
+	 **/
+	private static Checkpoints getCheckpoints(TuringMachine machine) {
+		if(checkpoint_file == null && resume_file == null)
+			return null;
+		if(checkpoint_file == null)
+			checkpoint_file = resume_file;
+
+		Checkpoints checkpoints = new Checkpoints(machine.getCompiledMachine(), checkpoint_file, checkpoint_interval);
+		if(resume_file != null) {
+			try {
+				checkpoints.load(resume_file);
+			}
+			catch(IOException | InputException e) {
+				System.out.println("Error: could not resume from " + resume_file + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		return checkpoints;
+	}
+
+	/**
+	 * Creates the decision cache if --cache or --cache-file was given, loading the
+	 * decisions saved in the cache file if it exists.
+	 **/
+	private static DecisionCache getCache() {
+		if(cache_size == 0 && cache_file == null)
+			return null;
+
+		DecisionCache cache = new DecisionCache(cache_size > 0 ? cache_size : DEFAULT_CACHE_SIZE, CACHE_CHARS);
+		if(cache_file != null && new File(cache_file).exists()) {
+			try {
+				cache.load(cache_file);
+			}
+			catch(IOException | InputException e) {
+				System.out.println("Error: could not load the decision cache from " + cache_file + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		return cache;
+	}
+
+	private static void saveCache(DecisionCache cache) {
+		if(cache_file == null)
+			return;
+		try {
+			cache.save(cache_file);
+		}
+		catch(IOException e) {
+			output.println("Error: could not save the decision cache to " + cache_file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * runtm --compile machine.txt [machine.tmc] checks a machine description and writes
+	 * its compiled tables to a .tmc file, by default next to the description, which can
+	 * then be given to runtm in place of the description to skip parsing it. Transitions
+	 * out of unreachable states are left out.
+	 **/
+	private static void compile(String[] args) {
+		if(args.length < 2 || args.length > 3) {
+			System.out.println("Usage: java -jar runtm.jar --compile <Turing Machine Description File> <Optional .tmc File>");
+			System.exit(1);
+		}
+
+		String description = args[1];
+		String compiled;
+		if(args.length == 3)
+			compiled = args[2];
+		else if(description.lastIndexOf('.') > description.lastIndexOf(File.separatorChar))
+			compiled = description.substring(0, description.lastIndexOf('.')) + ".tmc";
+		else
+			compiled = description + ".tmc";
+
+		TuringMachine machine = new TuringMachine();
+		try {
+			machine.initialise(description);
+			machine.analyse();
+			machine.save(compiled);
+		}
+		catch(InputException | IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+		System.out.println("Compiled " + description + " to " + compiled);
+	}
+
+	/**
+	 * runtm --check machine.txt [-n] analyses a machine description without running any
+	 * input, and prints its unreachable states, its missing transitions and any loops
+	 * that can never halt once entered. Exits with status 1 if it found such a loop.
+	 **/
+	private static void check(String[] args) {
+		boolean ntm = args.length == 3 && args[2].equals(NONDETERMINISTIC_FLAG);
+		if(args.length != 2 && !ntm) {
+			System.out.println("Usage: java -jar runtm.jar --check <Turing Machine Description File> <Optional -n>");
+			System.exit(1);
+		}
+
+		TuringMachine machine = new TuringMachine();
+		machine.setNondeterministic(ntm);
+		MachineAnalysis analysis = null;
+		try {
+			machine.initialise(args[1]);
+			analysis = machine.analyse();
+		}
+		catch(InputException | FileNotFoundException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+		analysis.print(System.out);
+		if(!analysis.getNonHaltingLoops().isEmpty())
+			System.exit(1);
+	}
+
+	/**
+	 * runtm --serve [socket] [flags] keeps machines loaded and answers requests naming
+	 * a machine and some inputs, on a Unix domain socket if a path is given or else on
+	 * standard input and output until it is closed. See MachineServer for the protocol.
+	 * -j sets the number of threads requests are evaluated on, by default one per
+	 * processor, and -e, -s, -t, --detect-cycles, --cache and --cache-file apply to
+	 * every machine.
+	 **/
+	private static void serve(String[] args) {
+		String socket = args.length > 1 && !args[1].startsWith("-") ? args[1] : null;
+		int first = socket == null ? 1 : 2;
+		String[] flags = new String[args.length - first + 2];
+		System.arraycopy(args, first, flags, 2, args.length - first);
+		for(int i = 2; i < flags.length; i++) {
+			if(!SERVE_FLAGS.contains(flags[i])) {
+				System.out.println("Error: the only valid flags for --serve are -j N, -e engine, -s N, -t N, --detect-cycles, --cache N and --cache-file file.");
+				System.exit(1);
+			}
+			if(!flags[i].equals(CYCLES_FLAG))
+				i++;
+		}
+		getAllFlags(flags);
+		int threads = hasFlag(flags, JOBS_FLAG) ? jobs : Runtime.getRuntime().availableProcessors();
+		DecisionCache cache = getCache();
+		output = System.out;
+
+		MachineServer server = new MachineServer(threads, engine, max_steps, timeout, detecting_cycles, cache);
+		try {
+			if(socket != null)
+				server.listen(socket);
+			else
+				server.serve(System.in, System.out);
+		}
+		catch(IOException e) {
+			System.err.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+		finally {
+			server.shutdown();
+		}
+		if(cache != null)
+			saveCache(cache);
+	}
+
+	/**
+	 * runtm --replay machine.txt trace [--animate] prints the runs recorded in a trace
+	 * written with --trace, as -I would have printed them. With --animate each
+	 * transition is held on screen for a moment, so the run can be followed by eye.
+	 **/
+	private static void replay(String[] args) {
+		boolean animate = args.length == 4 && args[3].equals(ANIMATE_FLAG);
+		if(args.length != 3 && !animate) {
+			System.out.println("Usage: java -jar runtm.jar --replay <Turing Machine Description File> <Trace File> <Optional --animate>");
+			System.exit(1);
+		}
+
+		TuringMachine machine = new TuringMachine();
+		PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+		try {
+			machine.initialise(args[1]);
+			new TraceViewer(machine.getCompiledMachine(), out, animate).replay(args[2]);
+		}
+		catch(InputException | IOException e) {
+			out.println(e.getMessage());
+		}
+		out.flush();
+	}
+
+	/**
+	 * All flags present are stored internally. Terminates the program
+	 * if an invalid flag is entered.
+	 **/
+	private static void getAllFlags(String[] args) {
+		if(args.length == MIN_NUM_ARGS)
+			return;
+
+		for (int i = 2; i < args.length; i++) {
+			String flag = args[i];
+			if(flag.equals(PERFORMANCE_FLAG))
+				in_performance_mode = true;
+			else if(flag.equals(INTERACTIVE_FLAG))
+				in_interactive_mode = true;
+			else if(flag.equals(JOBS_FLAG) && i + 1 < args.length)
+				jobs = (int) getPositive(flag, args[++i], Integer.MAX_VALUE);
+			else if(flag.equals(MAX_STEPS_FLAG) && i + 1 < args.length)
+				max_steps = getPositive(flag, args[++i], Long.MAX_VALUE);
+			else if(flag.equals(TIMEOUT_FLAG) && i + 1 < args.length)
+				timeout = getPositive(flag, args[++i], Long.MAX_VALUE);
+			else if(flag.equals(ENGINE_FLAG) && i + 1 < args.length)
+				engine = getEngine(args[++i]);
+			else if(flag.equals(PROFILE_FLAG) && i + 1 < args.length)
+				profile_file = args[++i];
+			else if(flag.equals(METRICS_FLAG))
+				metrics = new InProcessMetrics();
+			else if(flag.equals(TRACE_FLAG) && i + 1 < args.length)
+				trace_file = args[++i];
+			else if(flag.equals(CACHE_FLAG) && i + 1 < args.length)
+				cache_size = (int) getPositive(flag, args[++i], Integer.MAX_VALUE);
+			else if(flag.equals(CACHE_FILE_FLAG) && i + 1 < args.length)
+				cache_file = args[++i];
+			else if(flag.equals(NONDETERMINISTIC_FLAG))
+				nondeterministic = true;
+			else if(flag.equals(BUDGET_FLAG) && i + 1 < args.length)
+				configuration_budget = getPositive(flag, args[++i], Long.MAX_VALUE);
+			else if(flag.equals(CYCLES_FLAG))
+				detecting_cycles = true;
+			else if(flag.equals(SNAPSHOTS_FLAG) && i + 1 < args.length)
+				snapshot_cells = getPositive(flag, args[++i], Long.MAX_VALUE);
+			else if(flag.equals(CHECKPOINT_FLAG) && i + 1 < args.length)
+				checkpoint_file = args[++i];
+			else if(flag.equals(CHECKPOINT_INTERVAL_FLAG) && i + 1 < args.length)
+				checkpoint_interval = getPositive(flag, args[++i], Long.MAX_VALUE);
+			else if(flag.equals(RESUME_FLAG) && i + 1 < args.length)
+				resume_file = args[++i];
+			else {
+				System.out.println("Error: only valid flags are -I, -P, -n, -j N, -s N, -t N, -b N, -e engine, --profile file, --metrics, --trace file, --cache N, --cache-file file, --detect-cycles, --prefix-snapshots N, --checkpoint file, --checkpoint-interval N and --resume file.");
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Whether the flag is among the optional arguments, for the flags that must be
+	 * known before the machine is initialised.
+	 **/
+	private static boolean hasFlag(String[] args, String flag) {
+		for(int i = 2; i < args.length; i++)
+			if(args[i].equals(flag))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Parses the number following a flag. Terminates the program if it is not a
+	 * positive number no larger than max.
+	 **/
+	private static long getPositive(String flag, String value, long max) {
+		try {
+			long n = Long.parseLong(value);
+			if(n > 0 && n <= max)
+				return n;
+		}
+		catch(NumberFormatException e) {
+		}
+		System.out.println("Error: " + flag + " must be followed by a positive number.");
+		System.exit(1);
+		return 1;
+	}
+
+	private static Engine getEngine(String name) {
+		try {
+			return Engine.named(name);
+		}
+		catch(InputException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+			return null;
+		}
+	}
+
+	public static void clearScreen() {
+		System.out.print("\033[H\033[2J");
+		System.out.flush();
+	}
+
+	/**
+	 * Iterates through the inputs provided and compares each of them to the machine
+	 * that is now represented internally, as they are read. A message is written to the
+	 * output with the result, and if profiling, the input's profile is added to the
+	 * report.
+	 **/
+	private static void run(TuringMachine machine, LineReader inputs, ProfileReport report) throws IOException {
+		Evaluator context = machine.newRunContext(output);
+		try {
+			for(InputLine input = inputs.nextLine(); input != null; input = inputs.nextLine()) {
+				output.print(context.run(input, in_interactive_mode, in_performance_mode).getMessage() + System.lineSeparator());
+				if(report != null)
+					report.add(context.getProfile());
+			}
+		}
+		catch(InputException e) {
+			output.println(e.getMessage());
+		}
+		output.println("########################");
+	}
+
+	/**
+	 * As run, but the inputs are read a window at a time and each window is spread over a
+	 * fork-join pool of the requested number of threads, each with its own run context
+	 * sharing the compiled machine. A window's results are printed in input order once
+	 * all of them are decided, stopping at the first input that raised an InputException
+	 * just as run does.
+	 **/
+	private static void runInParallel(TuringMachine machine, LineReader inputs) throws IOException {
+		ArrayList<String> window = new ArrayList<String>(WINDOW_SIZE);
+		String[] results = new String[WINDOW_SIZE];
+		boolean[] failed = new boolean[WINDOW_SIZE];
+		ForkJoinPool pool = new ForkJoinPool(jobs);
+		try {
+			boolean stopped = false;
+			InputLine input = inputs.nextLine();
+			while(input != null && !stopped) {
+				window.clear();
+				for(; input != null && window.size() < WINDOW_SIZE; input = inputs.nextLine())
+					window.add(input.toString());
+
+				pool.invoke(new BatchTask(machine, window, results, failed,
+						in_performance_mode, 0, window.size()));
+
+				for(int i = 0; i < window.size() && !stopped; i++) {
+					output.print(results[i]);
+					stopped = failed[i];
+					failed[i] = false;
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		output.println("########################");
+	}
+
+	/**
+	 * Flushes the output every FLUSH_INTERVAL until the program exits. PrintStream
+	 * locks itself for each print and flush, so this never splits a result.
+	 **/
+	private static void startFlushing() {
+		Thread flusher = new Thread(() -> {
+			while(true) {
+				try {
+					Thread.sleep(FLUSH_INTERVAL);
+				}
+				catch(InterruptedException e) {
+					return;
+				}
+				output.flush();
+			}
+		}, "output-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * This is a method to display the machine as represented internally.
+	 * The ouput is somewhat lengthy, hence it is not used, although should you wish
+	 * it would be easy enough to call it.
+	 **/
+	@SuppressWarnings("unused")
+	private static void printMachineDescription(TuringMachine machine) {
+		for(State s : machine.getStates())
+			System.out.println("State: " + s.getName());
+
+		for(char c : machine.getAlphabet())
+			System.out.println("Alphabet symbol:"  + c);
+
+		for(Transition t : machine.getTransitionTable())
+			System.out.println(t.print());
+	}
+
+	public static void check(int args_length) {
+		if(args_length < MIN_NUM_ARGS || args_length > ARGS_ALL_FLAGS) {
+			System.out.println("Usage: java -jar runtm.jar <Turing Machine Description File> <Input File> <Optional flag>");
+			System.out.println("Example: java -jar runtm.jar Turing.txt input.txt");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The input file is opened for streaming rather than read up front, so that results
+	 * start as soon as the first line is read and memory does not grow with the file.
+	 **/
+	private static LineReader getInputFrom(String input_file) {
+		try {
+			return new LineReader(Paths.get(input_file));
+		}
+		catch (IOException e) {
+			System.out.println("Error: No input file was provided.");
+			System.exit(1);
+			return null;
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,246 @@
+package turing.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import turing.Engine;
+import turing.Evaluator;
+import turing.InputException;
+import turing.Result;
+import turing.TuringMachine;
+
+public class CliTestRunner {
+
+	/**
+	 * Runs runtm in a new JVM with the given arguments, as it would be run from the
+	 * command line, and returns everything it printed.
+	 **/
+	private static String runtm(String... args) throws IOException, InterruptedException {
+		Process process = start(args);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try(InputStream in = process.getInputStream()) {
+			in.transferTo(output);
+		}
+		process.waitFor();
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Starts runtm in a new JVM with the given arguments, with what it prints to stderr
+	 * merged into its stdout.
+	 **/
+	private static Process start(String... args) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(runtm.class.getName());
+		for(String arg : args)
+			command.add(arg);
+		return new ProcessBuilder(command).redirectErrorStream(true).start();
+	}
+
+	/**
+	 * Reads every line of a file holding the given text through a LineReader.
+	 **/
+	private static List<String> readLines(String text) throws IOException {
+		File file = File.createTempFile("lines", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		List<String> lines = new ArrayList<String>();
+		try(LineReader reader = new LineReader(file.toPath())) {
+			for(InputLine line = reader.nextLine(); line != null; line = reader.nextLine())
+				lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	@org.junit.Test
+	public void testLineReaderLineEndings() throws IOException {
+		assertEquals(Arrays.asList(), readLines(""));
+		assertEquals(Arrays.asList("ab", "cd"), readLines("ab\r\ncd\r\n"));
+		assertEquals(Arrays.asList("ab", "cd", "ef"), readLines("ab\rcd\nef\r\n"));
+		assertEquals(Arrays.asList("ab", "cd"), readLines("ab\ncd"));
+		assertEquals(Arrays.asList("", "", "ab", "", "cd"), readLines("\n\r\nab\n\r\ncd"));
+		assertEquals(Arrays.asList(""), readLines("\r\n"));
+	}
+
+	@org.junit.Test
+	public void testLineReaderBufferBoundaries() throws IOException {
+		// two, three and four byte characters starting on either side of the end of the
+		// first 65536 byte block, the four byte one decoding to a surrogate pair
+		for(String c : new String[] {"\u00e9", "\u20ac", "\ud83d\ude00"}) {
+			for(int before = 65530; before <= 65536; before++) {
+				String first = "a".repeat(before - 1);
+				String second = c + "b" + c;
+				assertEquals(c + " after " + before, Arrays.asList(first, second), readLines(first + "\n" + second + "\n"));
+			}
+		}
+
+		String longest = "ab".repeat(150000);
+		assertEquals(Arrays.asList("a", longest, longest + "_", "b"),
+				readLines("a\r\n" + longest + "\r\n" + longest + "_\nb"));
+	}
+
+	@org.junit.Test
+	public void testParallelRunsKeepInputOrder() throws IOException, InterruptedException {
+		List<String> corpus = new ArrayList<String>();
+		corpus.addAll(Files.readAllLines(Paths.get("test_inputs/accept_palindrome.txt")));
+		corpus.addAll(Files.readAllLines(Paths.get("test_inputs/reject_palindrome.txt")));
+
+		// more than two windows of inputs, with an input that has no transition in the third
+		List<String> inputs = new ArrayList<String>();
+		for(int i = 0; i < 10000; i++)
+			inputs.add(corpus.get(i % corpus.size()));
+		File file = File.createTempFile("palindrome", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), inputs);
+
+		String sequential = runtm("machine_descriptions/palindrome.txt", file.getPath(), "-P");
+		assertEquals(sequential, runtm("machine_descriptions/palindrome.txt", file.getPath(), "-P", "-j", "4"));
+
+		inputs.set(9000, "abzba_");
+		Files.write(file.toPath(), inputs);
+		sequential = runtm("machine_descriptions/palindrome.txt", file.getPath());
+		assertEquals(true, sequential.endsWith("Error: there is no transition possible given the state and input."
+				+ System.lineSeparator() + "########################" + System.lineSeparator()));
+		assertEquals(sequential, runtm("machine_descriptions/palindrome.txt", file.getPath(), "-j", "4"));
+	}
+
+	@org.junit.Test
+	public void testResultsAppearBeforeLaterInputsFinish() throws IOException, InterruptedException {
+		// accepts a, and on the blank tape steps right and left again forever
+		File description = File.createTempFile("forever", ".txt");
+		description.deleteOnExit();
+		Files.writeString(description.toPath(), String.join("\n", "states 3", "q0", "q1", "qa +", "alphabet 1 a",
+				"q0 a qa a R", "q0 _ q1 _ R", "q1 _ q0 _ L", "q1 a q0 a L", ""));
+		File inputs = File.createTempFile("forever", ".txt");
+		inputs.deleteOnExit();
+		Files.writeString(inputs.toPath(), "a\n_\n");
+
+		Process process = start(description.getPath(), inputs.getPath());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Thread reader = new Thread(() -> {
+			try(InputStream in = process.getInputStream()) {
+				in.transferTo(output);
+			}
+			catch(IOException e) {
+				// the process was stopped
+			}
+		});
+		reader.start();
+		try {
+			long deadline = System.nanoTime() + 10000000000L;
+			while(!output.toString(StandardCharsets.UTF_8).contains("input accepted") && System.nanoTime() < deadline)
+				Thread.sleep(20);
+			assertEquals(output.toString(StandardCharsets.UTF_8), true,
+					output.toString(StandardCharsets.UTF_8).contains("input accepted"));
+			assertEquals(true, process.isAlive());
+		}
+		finally {
+			process.destroyForcibly().waitFor();
+			reader.join();
+		}
+	}
+
+	@org.junit.Test
+	public void testTooManyArgumentsAreRejected() throws IOException, InterruptedException {
+		String[] args = new String[runtm.ARGS_ALL_FLAGS + 1];
+		args[0] = "machine_descriptions/palindrome.txt";
+		args[1] = "test_inputs/accept_palindrome.txt";
+		for(int i = 2; i < args.length; i++)
+			args[i] = "-P";
+		assertEquals(true, runtm(args).startsWith("Usage: "));
+	}
+
+	/**
+	 * The answer runtm would give for each input on the machine described in the file,
+	 * as the server words it.
+	 **/
+	private static String expected(String description, String... inputs) throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise(description);
+		Evaluator context = machine.newRunContext();
+		StringBuilder answer = new StringBuilder();
+		for(String input : inputs) {
+			Result result = context.run(input, false, false);
+			answer.append(' ').append(result.name()).append(' ').append(context.getNumberOfSteps());
+		}
+		return answer.toString();
+	}
+
+	@org.junit.Test
+	public void testServerAnswersRequests() throws IOException, InputException {
+		MachineServer server = new MachineServer(1, Engine.INTERPRETER, Long.MAX_VALUE, 0, false, null);
+		try {
+			assertEquals("7 ERROR Error: requests are of the form 'id machine input...', with \"\" for the empty input",
+					server.handle("  7  "));
+			assertEquals("1 ERROR Error: could not read no_such_machine.txt", server.handle("1 no_such_machine.txt ab_"));
+			assertEquals(0, server.getMachineCount());
+
+			String palindrome = "machine_descriptions/palindrome.txt";
+			assertEquals("2" + expected(palindrome, "abba_", "", "ab_"), server.handle("2 " + palindrome + " abba_ \"\" ab_"));
+			assertEquals("3", server.handle("3 " + palindrome));
+			assertEquals("4 ERROR Error: there is no transition possible given the state and input.",
+					server.handle("4 " + palindrome + " abba_ abzba_ ab_"));
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@org.junit.Test
+	public void testServerSharesAndReloadsMachines() throws IOException, InputException {
+		File first = File.createTempFile("palindrome", ".txt");
+		File second = File.createTempFile("palindrome", ".txt");
+		first.deleteOnExit();
+		second.deleteOnExit();
+		Files.copy(Paths.get("machine_descriptions/palindrome.txt"), first.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(Paths.get("machine_descriptions/palindrome.txt"), second.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		MachineServer server = new MachineServer(1, Engine.INTERPRETER, Long.MAX_VALUE, 0, false, null);
+		try {
+			String palindrome = expected("machine_descriptions/palindrome.txt", "abba_", "ab_");
+			assertEquals("1" + palindrome, server.handle("1 " + first.getPath() + " abba_ ab_"));
+			assertEquals("2" + palindrome, server.handle("2 " + second.getPath() + " abba_ ab_"));
+			assertEquals(1, server.getMachineCount());
+
+			// the first path now holds another machine, which the second no longer shares
+			long modified = first.lastModified();
+			Files.copy(Paths.get("machine_descriptions/identity.txt"), first.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			first.setLastModified(modified + 2000);
+			String identity = expected("machine_descriptions/identity.txt", "abc#abc_", "abc#ab_");
+			assertEquals("3" + identity, server.handle("3 " + first.getPath() + " abc#abc_ abc#ab_"));
+			assertEquals("4" + palindrome, server.handle("4 " + second.getPath() + " abba_ ab_"));
+			assertEquals(2, server.getMachineCount());
+
+			// once neither path is loaded as the palindrome machine it is no longer kept
+			Files.copy(Paths.get("machine_descriptions/identity.txt"), second.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			second.setLastModified(second.lastModified() + 2000);
+			assertEquals("5" + identity, server.handle("5 " + second.getPath() + " abc#abc_ abc#ab_"));
+			assertEquals(1, server.getMachineCount());
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@org.junit.Test
+	public void testServerRejectsFlagsItDoesNotUse() throws IOException, InterruptedException {
+		for(String flag : new String[] {"-I", "-P", "-n", "--metrics", "--trace", "--profile", "--checkpoint", "--resume",
+				"--prefix-snapshots"})
+			assertEquals(flag, true, runtm("--serve", flag, "1").startsWith("Error: the only valid flags for --serve are"));
+	}
+
+}
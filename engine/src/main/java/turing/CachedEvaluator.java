@@ -0,0 +1,75 @@
+package turing;
+
+/**
+ * Wraps another evaluator and answers inputs from a DecisionCache where it can. A
+ * cached decision is only used if it took fewer steps than the step budget allows, so
+ * results are always what the evaluator itself would have returned. -I needs every
+ * transition, so interactive runs always go to the evaluator.
+ **/
+class CachedEvaluator extends Evaluator {
+
+	private final Evaluator evaluator;
+	private final DecisionCache cache;
+	private boolean answered = false;
+
+	CachedEvaluator(Evaluator evaluator, DecisionCache cache) {
+		super(evaluator.machine, evaluator.out);
+		this.evaluator = evaluator;
+		this.cache = cache;
+	}
+
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		if(!i_mode) {
+			DecisionCache.Decision decision = cache.get(machine, input);
+			answered = decision != null && decision.getSteps() < getMaxSteps();
+			if(answered) {
+				number_of_steps = decision.getSteps();
+				if(p_mode)
+					printSteps(input);
+				return decision.getResult();
+			}
+		}
+
+		Result result;
+		try {
+			result = evaluator.run(input, i_mode, p_mode);
+		}
+		finally {
+			number_of_steps = evaluator.getNumberOfSteps();
+		}
+		cache.put(machine, input, result, number_of_steps);
+		return result;
+	}
+
+	@Override
+	public void setMaxSteps(long max_steps) {
+		super.setMaxSteps(max_steps);
+		evaluator.setMaxSteps(max_steps);
+	}
+
+	@Override
+	public void setTimeout(long milliseconds) {
+		super.setTimeout(milliseconds);
+		evaluator.setTimeout(milliseconds);
+	}
+
+	@Override
+	public int getTapeCells() {
+		return evaluator.getTapeCells();
+	}
+
+	/**
+	 * An input answered from the cache did not use the tape at all.
+	 **/
+	@Override
+	public int getCellsUsed() {
+		return answered ? 0 : evaluator.getCellsUsed();
+	}
+
+	@Override
+	public Profile getProfile() {
+		return evaluator.getProfile();
+	}
+
+}
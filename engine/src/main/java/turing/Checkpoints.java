@@ -0,0 +1,302 @@
+package turing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Saves the configuration of long runs to a file every so many steps, so that a run
+ * cut short, by the process dying or by its step limit, can be resumed from the last
+ * checkpoint rather than from the start.
+ *
+ * The file is deflated, and inflated holds a header followed by one record per input:
+ *
+ *   header: "TCK" 1, machine content hash, record count
+ *   record: input length, input characters, state, head position, step count,
+ *           lowest position, cell count, cells from the lowest position on
+ *
+ * States are those of the CompiledMachine, so a checkpoint can only be resumed with
+ * the machine it was taken with.
+ **/
+public class Checkpoints implements Closeable {
+
+	static final int MAGIC = 0x54434B01;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final CompiledMachine machine;
+	private final Path path;
+	private final long interval;
+
+	/**
+	 * The latest checkpoint of each input, kept until its run is decided. Checkpoints
+	 * are never modified once taken, so the writer thread can read them unlocked.
+	 **/
+	private final HashMap<String, Checkpoint> latest = new HashMap<String, Checkpoint>();
+
+	private final Thread writer;
+	private boolean pending = false;
+	private boolean closed = false;
+	private IOException failure;
+
+	private long taken = 0;
+	private long written = 0;
+	private long resumed = 0;
+	private long skipped_steps = 0;
+
+	/**
+	 * A run's configuration at the top of its step loop: the state it is in, where the
+	 * head is, the steps it has taken and the used part of its tape.
+	 **/
+	static final class Checkpoint {
+		final int state;
+		final int position;
+		final long steps;
+		final int lowest;
+		final char[] cells;
+
+		Checkpoint(int state, int position, long steps, int lowest, char[] cells) {
+			this.state = state;
+			this.position = position;
+			this.steps = steps;
+			this.lowest = lowest;
+			this.cells = cells;
+		}
+	}
+
+	/**
+	 * Checkpoints the machine's runs to the file at the given path every interval steps.
+	 * The machine thread only copies the tape, which is a single array copy; the file is
+	 * deflated and written by a thread of its own, to a temporary file that then
+	 * replaces the old one, so a process killed part way through a write still leaves
+	 * the previous checkpoint whole. If the writer is still busy when more checkpoints
+	 * are taken, it writes only the latest of them when it is done.
+	 **/
+	public Checkpoints(CompiledMachine machine, String path, long interval) {
+		this.machine = machine;
+		this.path = Paths.get(path);
+		this.interval = interval;
+
+		writer = new Thread(this::drain, "checkpoint-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Reads the checkpoints saved in the file, so that runs on their inputs resume from
+	 * them. They are kept, and written out again with later checkpoints, until the runs
+	 * are decided. Throws an InputException if the file is not a checkpoint of this
+	 * machine.
+	 **/
+	public synchronized void load(String saved) throws IOException, InputException {
+		try(FileChannel channel = FileChannel.open(Paths.get(saved), StandardOpenOption.READ);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(
+						new InflaterInputStream(Channels.newInputStream(channel)), BUFFER_SIZE))) {
+			if(in.readInt() != MAGIC)
+				throw new InputException("Error: " + saved + " is not a checkpoint");
+			if(in.readLong() != machine.getContentHash())
+				throw new InputException("Error: " + saved + " was checkpointed with a different machine");
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				String input = new String(readChars(in, in.readInt(), saved));
+				int state = in.readInt();
+				int position = in.readInt();
+				long steps = in.readLong();
+				int lowest = in.readInt();
+				char[] cells = readChars(in, in.readInt(), saved);
+				if(state < 0 || state >= machine.getStateCount() || !machine.isDefault(state) || steps < 0
+						|| lowest > 0 || lowest + cells.length < input.length())
+					throw new InputException("Error: " + saved + " is not a checkpoint");
+				latest.put(input, new Checkpoint(state, position, steps, lowest, cells));
+			}
+		}
+		catch(EOFException | ZipException e) {
+			throw new InputException("Error: " + saved + " is not a checkpoint");
+		}
+	}
+
+	private static char[] readChars(DataInputStream in, int length, String saved) throws IOException, InputException {
+		if(length < 0)
+			throw new InputException("Error: " + saved + " is not a checkpoint");
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++)
+			chars[i] = in.readChar();
+		return chars;
+	}
+
+	/**
+	 * Returns the latest checkpoint of the input that a run limited to max_steps would
+	 * have got to, or null if there is none.
+	 **/
+	synchronized Checkpoint find(CharSequence input, long max_steps) {
+		if(latest.isEmpty())
+			return null;
+		Checkpoint checkpoint = latest.get(input.toString());
+		if(checkpoint == null || checkpoint.steps > max_steps)
+			return null;
+		resumed++;
+		skipped_steps += checkpoint.steps;
+		return checkpoint;
+	}
+
+	/**
+	 * Takes a checkpoint of a run on the input, unless there is already a later one, and
+	 * wakes the writer.
+	 **/
+	synchronized void take(CharSequence input, int state, int position, long steps, Tape tape) {
+		String key = input.toString();
+		Checkpoint previous = latest.get(key);
+		if(previous != null && previous.steps >= steps)
+			return;
+		latest.put(key, new Checkpoint(state, position, steps, tape.getLowest(), tape.read(tape.getLowest(), tape.getHighest())));
+		taken++;
+		pending = true;
+		notifyAll();
+	}
+
+	/**
+	 * Forgets the checkpoint of an input whose run has been decided, and wakes the
+	 * writer to write the file without it. A run cut short by its limits keeps it, so
+	 * that it can be resumed with a larger one.
+	 **/
+	synchronized void decided(CharSequence input) {
+		if(!latest.isEmpty() && latest.remove(input.toString()) != null) {
+			pending = true;
+			notifyAll();
+		}
+	}
+
+	private void drain() {
+		while(true) {
+			ArrayList<Map.Entry<String, Checkpoint>> checkpoints;
+			synchronized(this) {
+				while(!pending && !closed) {
+					try {
+						wait();
+					}
+					catch(InterruptedException e) {
+						return;
+					}
+				}
+				if(!pending)
+					return;
+				pending = false;
+				checkpoints = new ArrayList<Map.Entry<String, Checkpoint>>(latest.size());
+				for(Map.Entry<String, Checkpoint> entry : latest.entrySet())
+					checkpoints.add(Map.entry(entry.getKey(), entry.getValue()));
+			}
+			try {
+				write(checkpoints);
+				synchronized(this) {
+					written++;
+				}
+			}
+			catch(IOException e) {
+				synchronized(this) {
+					failure = e;
+				}
+			}
+		}
+	}
+
+	private void write(ArrayList<Map.Entry<String, Checkpoint>> checkpoints) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			DeflaterOutputStream deflated = new DeflaterOutputStream(Channels.newOutputStream(channel), deflater, BUFFER_SIZE);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(deflated, BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeLong(machine.getContentHash());
+			out.writeInt(checkpoints.size());
+			for(Map.Entry<String, Checkpoint> entry : checkpoints) {
+				Checkpoint checkpoint = entry.getValue();
+				out.writeInt(entry.getKey().length());
+				out.writeChars(entry.getKey());
+				out.writeInt(checkpoint.state);
+				out.writeInt(checkpoint.position);
+				out.writeLong(checkpoint.steps);
+				out.writeInt(checkpoint.lowest);
+				out.writeInt(checkpoint.cells.length);
+				for(char c : checkpoint.cells)
+					out.writeChar(c);
+			}
+			out.flush();
+			deflated.finish();
+			channel.force(true);
+		}
+		finally {
+			deflater.end();
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Waits for the writer to write out the latest checkpoints, if it has not yet, and
+	 * stops it. Throws the IOException of the last write that failed, if any did.
+	 **/
+	@Override
+	public void close() throws IOException {
+		synchronized(this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized(this) {
+			if(failure != null)
+				throw failure;
+		}
+	}
+
+	/**
+	 * The checkpoints taken and the times the file was written, which is fewer if the
+	 * writer fell behind.
+	 **/
+	public synchronized long getTaken() {
+		return taken;
+	}
+
+	public synchronized long getWritten() {
+		return written;
+	}
+
+	/**
+	 * The number of runs that resumed from a checkpoint, and the steps they did not have
+	 * to take again.
+	 **/
+	public synchronized long getResumed() {
+		return resumed;
+	}
+
+	public synchronized long getSkippedSteps() {
+		return skipped_steps;
+	}
+
+}
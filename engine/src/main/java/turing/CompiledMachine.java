@@ -0,0 +1,621 @@
+package turing;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class CompiledMachine {
+
+	public static final int NO_TRANSITION = -1;
+	public static final int NO_SYMBOL = -1;
+
+	private static final Move LEFT = move(Transition.LEFT);
+	private static final Move RIGHT = move(Transition.RIGHT);
+
+	private final State[] states;
+	private final char[] symbols;
+	private final int symbol_count;
+	private final int start_state;
+
+	/**
+	 * The number of tapes, and the number of combinations of symbols the heads can
+	 * read at once, symbol_count to the power of tapes.
+	 **/
+	private final int tapes;
+	private final int key_count;
+
+	/**
+	 * Maps a tape character to its symbol id, or NO_SYMBOL if the character is not
+	 * in the tape alphabet. Indexed directly by the character value.
+	 **/
+	private final int[] symbol_ids;
+
+	private final boolean[] is_default;
+	private final boolean[] is_accept;
+
+	/**
+	 * The transition table, flattened so that the transition for a given state id and
+	 * symbol id lives at state_id * symbol_count + symbol_id. On a machine with several
+	 * tapes the symbol ids the heads read are combined into one key, the id read on
+	 * tape i counting symbol_count^i times, and the transition lives at
+	 * state_id * key_count + key. Its output and move for tape i are then at
+	 * index * tapes + i of their arrays.
+	 **/
+	private final int[] next_states;
+	private final char[] outputs;
+	private final int[] output_symbols;
+	private final int[] moves;
+	private final Transition[] transitions;
+
+	/**
+	 * For a nondeterministic machine, every transition for a (state id, symbol id) key,
+	 * with those for key k at indices choice_starts[k] to choice_starts[k + 1] - 1 of
+	 * the choice arrays. The flat arrays above hold the first of them. For a
+	 * deterministic machine choice_starts is null and the choices are the flat arrays.
+	 **/
+	private final int[] choice_starts;
+	private final int[] choice_next_states;
+	private final char[] choice_outputs;
+	private final int[] choice_moves;
+
+	/**
+	 * The sweeps of a deterministic single-tape machine. A transition is a sweep if it
+	 * writes back the symbol it read and stays in the same state, so that the machine
+	 * just moves over the symbol; sweep_moves holds its move, or 0 for any other
+	 * transition. sweep_symbols[state * 2 + side] lists the symbol ids a state sweeps
+	 * over to the left (side 0) or right (side 1), and sweep_characters the same
+	 * symbols as characters, or null if there are none.
+	 **/
+	private final byte[] sweep_moves;
+	private final int[][] sweep_symbols;
+	private final char[][] sweep_characters;
+
+	private volatile long content_hash;
+	private volatile boolean hashed;
+
+	/**
+	 * Numbers the states in the order they were declared and the tape symbols in the
+	 * order of the alphabet followed by the empty character, then lays the transition
+	 * table out in flat arrays indexed by (state id, symbol id).
+	 **/
+	public CompiledMachine(State[] states, char[] alphabet, ArrayList<Transition> transition_table) {
+		this(states, alphabet, transition_table, 1);
+	}
+
+	/**
+	 * As above, for a machine whose transitions each read, write and move on the given
+	 * number of tapes.
+	 **/
+	public CompiledMachine(State[] states, char[] alphabet, ArrayList<Transition> transition_table, int tapes) {
+		this.states = states;
+		this.start_state = 0;
+		this.tapes = tapes;
+
+		char[] tape_alphabet = new char[alphabet.length + 1];
+		int count = 0;
+		for(char c : alphabet)
+			if(indexOf(tape_alphabet, count, c) == NO_SYMBOL)
+				tape_alphabet[count++] = c;
+		if(indexOf(tape_alphabet, count, Transition.emptyCharacter()) == NO_SYMBOL)
+			tape_alphabet[count++] = Transition.emptyCharacter();
+
+		symbol_count = count;
+		symbols = new char[symbol_count];
+		System.arraycopy(tape_alphabet, 0, symbols, 0, symbol_count);
+		symbol_ids = symbolIds(symbols);
+		int keys = 1;
+		for(int i = 0; i < tapes; i++)
+			keys *= symbol_count;
+		key_count = keys;
+
+		HashMap<State, Integer> state_ids = new HashMap<State, Integer>();
+		is_default = new boolean[states.length];
+		is_accept = new boolean[states.length];
+		for(int i = 0; i < states.length; i++) {
+			state_ids.put(states[i], i);
+			is_default[i] = states[i].isDefault();
+			is_accept[i] = states[i].isAcceptState();
+		}
+
+		int size = states.length * key_count;
+		next_states = new int[size];
+		outputs = new char[size * tapes];
+		output_symbols = new int[size * tapes];
+		moves = new int[size * tapes];
+		transitions = new Transition[size];
+		for(int i = 0; i < size; i++)
+			next_states[i] = NO_TRANSITION;
+
+		int[] counts = new int[size + 1];
+		boolean deterministic = true;
+		for(Transition t : transition_table) {
+			int index = state_ids.get(t.getInitialState()) * key_count + keyOf(t);
+			if(counts[index]++ > 0) {
+				deterministic = false;
+				continue;
+			}
+			next_states[index] = state_ids.get(t.getResultState());
+			for(int i = 0; i < tapes; i++) {
+				outputs[index * tapes + i] = t.getTapeOutput(i);
+				output_symbols[index * tapes + i] = symbol_ids[t.getTapeOutput(i)];
+				moves[index * tapes + i] = offset(t.getMoveDirection(i));
+			}
+			transitions[index] = t;
+		}
+
+		sweep_moves = findSweeps(deterministic);
+		sweep_symbols = sweepSymbols(sweep_moves);
+		sweep_characters = sweepCharacters(sweep_symbols);
+
+		if(deterministic) {
+			choice_starts = null;
+			choice_next_states = null;
+			choice_outputs = null;
+			choice_moves = null;
+			return;
+		}
+
+		choice_starts = new int[size + 1];
+		for(int i = 0; i < size; i++)
+			choice_starts[i + 1] = choice_starts[i] + counts[i];
+		choice_next_states = new int[transition_table.size()];
+		choice_outputs = new char[transition_table.size()];
+		choice_moves = new int[transition_table.size()];
+		int[] filled = new int[size];
+		for(Transition t : transition_table) {
+			int index = state_ids.get(t.getInitialState()) * symbol_count + symbol_ids[t.getTapeInput()];
+			int choice = choice_starts[index] + filled[index]++;
+			choice_next_states[choice] = state_ids.get(t.getResultState());
+			choice_outputs[choice] = t.getTapeOutput();
+			choice_moves[choice] = t.getMoveDirection().equals(Transition.LEFT) ? -1 : 1;
+		}
+	}
+
+	/**
+	 * Rebuilds a machine from tables that were compiled earlier and saved by
+	 * MachineFile, without going back through the description or its checks. Only the
+	 * tables the engines step through are stored, so the Transition objects used by the
+	 * -I trace are recreated on demand.
+	 **/
+	CompiledMachine(State[] states, char[] symbols, int[] next_states, int[] output_symbols, int[] moves) {
+		this.states = states;
+		this.start_state = 0;
+		this.symbols = symbols;
+		this.symbol_count = symbols.length;
+		this.symbol_ids = symbolIds(symbols);
+		this.tapes = 1;
+		this.key_count = symbol_count;
+
+		is_default = new boolean[states.length];
+		is_accept = new boolean[states.length];
+		for(int i = 0; i < states.length; i++) {
+			is_default[i] = states[i].isDefault();
+			is_accept[i] = states[i].isAcceptState();
+		}
+
+		this.next_states = next_states;
+		this.output_symbols = output_symbols;
+		this.moves = moves;
+		outputs = new char[next_states.length];
+		transitions = new Transition[next_states.length];
+		for(int i = 0; i < next_states.length; i++)
+			if(next_states[i] != NO_TRANSITION)
+				outputs[i] = symbols[output_symbols[i]];
+
+		sweep_moves = findSweeps(true);
+		sweep_symbols = sweepSymbols(sweep_moves);
+		sweep_characters = sweepCharacters(sweep_symbols);
+
+		choice_starts = null;
+		choice_next_states = null;
+		choice_outputs = null;
+		choice_moves = null;
+	}
+
+	/**
+	 * The combined key of the symbols the transition reads on each tape.
+	 **/
+	private int keyOf(Transition t) {
+		int key = 0;
+		for(int i = tapes - 1; i >= 0; i--)
+			key = key * symbol_count + symbol_ids[t.getTapeInput(i)];
+		return key;
+	}
+
+	/**
+	 * A copy of another machine without any transitions out of the states that are not
+	 * live, which MachineAnalysis uses to prune the transitions that can never fire.
+	 **/
+	private CompiledMachine(CompiledMachine machine, boolean[] live) {
+		states = machine.states;
+		symbols = machine.symbols;
+		symbol_count = machine.symbol_count;
+		start_state = machine.start_state;
+		tapes = machine.tapes;
+		key_count = machine.key_count;
+		symbol_ids = machine.symbol_ids;
+		is_default = machine.is_default;
+		is_accept = machine.is_accept;
+
+		next_states = machine.next_states.clone();
+		outputs = machine.outputs.clone();
+		output_symbols = machine.output_symbols.clone();
+		moves = machine.moves.clone();
+		transitions = machine.transitions.clone();
+		for(int s = 0; s < states.length; s++) {
+			if(live[s])
+				continue;
+			for(int index = s * key_count; index < (s + 1) * key_count; index++) {
+				next_states[index] = NO_TRANSITION;
+				transitions[index] = null;
+			}
+		}
+
+		sweep_moves = findSweeps(machine.choice_starts == null);
+		sweep_symbols = sweepSymbols(sweep_moves);
+		sweep_characters = sweepCharacters(sweep_symbols);
+
+		if(machine.choice_starts == null) {
+			choice_starts = null;
+			choice_next_states = null;
+			choice_outputs = null;
+			choice_moves = null;
+			return;
+		}
+
+		int size = next_states.length;
+		choice_starts = new int[size + 1];
+		for(int i = 0; i < size; i++) {
+			int count = live[i / key_count] ? machine.choice_starts[i + 1] - machine.choice_starts[i] : 0;
+			choice_starts[i + 1] = choice_starts[i] + count;
+		}
+		choice_next_states = new int[choice_starts[size]];
+		choice_outputs = new char[choice_starts[size]];
+		choice_moves = new int[choice_starts[size]];
+		for(int i = 0; i < size; i++) {
+			int count = choice_starts[i + 1] - choice_starts[i];
+			System.arraycopy(machine.choice_next_states, machine.choice_starts[i], choice_next_states, choice_starts[i], count);
+			System.arraycopy(machine.choice_outputs, machine.choice_starts[i], choice_outputs, choice_starts[i], count);
+			System.arraycopy(machine.choice_moves, machine.choice_starts[i], choice_moves, choice_starts[i], count);
+		}
+	}
+
+	CompiledMachine pruned(boolean[] live) {
+		return new CompiledMachine(this, live);
+	}
+
+	/**
+	 * Finds the sweep transitions. Nondeterministic and multi-tape machines have none,
+	 * since their engines never skip ahead.
+	 **/
+	private byte[] findSweeps(boolean deterministic) {
+		byte[] sweeps = new byte[next_states.length];
+		if(!deterministic || tapes > 1)
+			return sweeps;
+		for(int index = 0; index < next_states.length; index++) {
+			int state = index / symbol_count;
+			if(next_states[index] == state && output_symbols[index] == index - state * symbol_count)
+				sweeps[index] = (byte) moves[index];
+		}
+		return sweeps;
+	}
+
+	private int[][] sweepSymbols(byte[] sweeps) {
+		int[][] sweep_symbols = new int[states.length * 2][];
+		if(tapes > 1)
+			return sweep_symbols;
+		int[] found = new int[symbol_count];
+		for(int state = 0; state < states.length; state++) {
+			for(int side = 0; side < 2; side++) {
+				int count = 0;
+				for(int symbol = 0; symbol < symbol_count; symbol++)
+					if(sweeps[state * symbol_count + symbol] == (side == 0 ? -1 : 1))
+						found[count++] = symbol;
+				if(count > 0)
+					sweep_symbols[state * 2 + side] = Arrays.copyOf(found, count);
+			}
+		}
+		return sweep_symbols;
+	}
+
+	private char[][] sweepCharacters(int[][] sweep_symbols) {
+		char[][] sweep_characters = new char[sweep_symbols.length][];
+		for(int i = 0; i < sweep_symbols.length; i++) {
+			if(sweep_symbols[i] == null)
+				continue;
+			sweep_characters[i] = new char[sweep_symbols[i].length];
+			for(int j = 0; j < sweep_symbols[i].length; j++)
+				sweep_characters[i][j] = symbols[sweep_symbols[i][j]];
+		}
+		return sweep_characters;
+	}
+
+	private static int offset(String direction) {
+		if(direction.equals(Transition.STAY))
+			return 0;
+		return direction.equals(Transition.LEFT) ? -1 : 1;
+	}
+
+	private static Move move(String direction) {
+		try {
+			return new Move(direction);
+		}
+		catch(InputException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static int[] symbolIds(char[] symbols) {
+		char max = Transition.emptyCharacter();
+		for(char c : symbols)
+			if(c > max)
+				max = c;
+
+		int[] symbol_ids = new int[max + 1];
+		for(int i = 0; i < symbol_ids.length; i++)
+			symbol_ids[i] = NO_SYMBOL;
+		for(int i = 0; i < symbols.length; i++)
+			symbol_ids[symbols[i]] = i;
+		return symbol_ids;
+	}
+
+	private static int indexOf(char[] array, int length, char c) {
+		for(int i = 0; i < length; i++)
+			if(array[i] == c)
+				return i;
+		return NO_SYMBOL;
+	}
+
+	/**
+	 * Returns the index of the transition for the given state id and tape character,
+	 * for use with getNextState, getOutput and getMove.
+	 * Throws an InputException if there is no transition available.
+	 **/
+	public int find(int state, char input) throws InputException {
+		if(input < symbol_ids.length) {
+			int symbol = symbol_ids[input];
+			if(symbol != NO_SYMBOL) {
+				int index = state * symbol_count + symbol;
+				if(next_states[index] != NO_TRANSITION)
+					return index;
+			}
+		}
+		throw new InputException("Error: there is no transition possible given the state and input.");
+	}
+
+	/**
+	 * Returns the index of the transition for the given state id and symbol id, or
+	 * NO_TRANSITION if there is none. For engines that keep the tape as symbol ids.
+	 **/
+	public int lookup(int state, int symbol) {
+		int index = state * symbol_count + symbol;
+		return next_states[index] == NO_TRANSITION ? NO_TRANSITION : index;
+	}
+
+	/**
+	 * On a machine with several tapes, returns the index of the transition for the given
+	 * state id and combined key of the symbol ids under the heads, or NO_TRANSITION if
+	 * there is none.
+	 **/
+	public int lookupKey(int state, int key) {
+		int index = state * key_count + key;
+		return next_states[index] == NO_TRANSITION ? NO_TRANSITION : index;
+	}
+
+	/**
+	 * Returns the symbol id of the tape character, or NO_SYMBOL if it is not in the
+	 * tape alphabet.
+	 **/
+	public int getSymbolId(char c) {
+		return c < symbol_ids.length ? symbol_ids[c] : NO_SYMBOL;
+	}
+
+	public int getBlankSymbol() {
+		return symbol_ids[Transition.emptyCharacter()];
+	}
+
+	public int getStartState() {
+		return start_state;
+	}
+
+	public int getNextState(int index) {
+		return next_states[index];
+	}
+
+	public char getOutput(int index) {
+		return outputs[index];
+	}
+
+	public int getOutputSymbol(int index) {
+		return output_symbols[index];
+	}
+
+	public int getMove(int index) {
+		return moves[index];
+	}
+
+	/**
+	 * The symbol the transition at the index writes on the given tape, of a machine
+	 * with several tapes.
+	 **/
+	public char getOutput(int index, int tape) {
+		return outputs[index * tapes + tape];
+	}
+
+	public int getMove(int index, int tape) {
+		return moves[index * tapes + tape];
+	}
+
+	public int getTapeCount() {
+		return tapes;
+	}
+
+	public int getKeyCount() {
+		return key_count;
+	}
+
+	/**
+	 * The transition at the index, recreated from the tables the first time it is asked
+	 * for if the machine was loaded from a compiled file. Threads racing to recreate
+	 * the same transition build equal objects, so no locking is needed.
+	 **/
+	public Transition getTransition(int index) {
+		Transition t = transitions[index];
+		if(t == null && next_states[index] != NO_TRANSITION) {
+			int state = index / symbol_count;
+			t = new Transition(states[state], symbols[index - state * symbol_count],
+					states[next_states[index]], outputs[index], moves[index] < 0 ? LEFT : RIGHT);
+			transitions[index] = t;
+		}
+		return t;
+	}
+
+	/**
+	 * The move of the transition at the index if it is a sweep, one that writes back
+	 * what it read and stays in the same state, otherwise 0.
+	 **/
+	public int getSweepMove(int index) {
+		return sweep_moves[index];
+	}
+
+	/**
+	 * The symbol ids the state sweeps over in the given direction, or null if none.
+	 * From any of them the machine moves on in that direction in the same state, so it
+	 * only stops on a symbol outside the set.
+	 **/
+	public int[] getSweepSymbols(int state, int direction) {
+		return sweep_symbols[state * 2 + (direction < 0 ? 0 : 1)];
+	}
+
+	/**
+	 * As getSweepSymbols, as tape characters.
+	 **/
+	public char[] getSweepCharacters(int state, int direction) {
+		return sweep_characters[state * 2 + (direction < 0 ? 0 : 1)];
+	}
+
+	/**
+	 * False if some (state, symbol) pair has more than one transition, which only a
+	 * machine loaded in nondeterministic mode can have.
+	 **/
+	public boolean isDeterministic() {
+		return choice_starts == null;
+	}
+
+	/**
+	 * The transitions for the given state id and symbol id are the choices from
+	 * getChoiceStart up to but not including getChoiceEnd, for use with
+	 * getChoiceNextState, getChoiceOutput and getChoiceMove.
+	 **/
+	public int getChoiceStart(int state, int symbol) {
+		int index = state * symbol_count + symbol;
+		return choice_starts == null ? index : choice_starts[index];
+	}
+
+	public int getChoiceEnd(int state, int symbol) {
+		int index = state * symbol_count + symbol;
+		if(choice_starts == null)
+			return next_states[index] == NO_TRANSITION ? index : index + 1;
+		return choice_starts[index + 1];
+	}
+
+	public int getChoiceNextState(int choice) {
+		return choice_starts == null ? next_states[choice] : choice_next_states[choice];
+	}
+
+	public char getChoiceOutput(int choice) {
+		return choice_starts == null ? outputs[choice] : choice_outputs[choice];
+	}
+
+	public int getChoiceMove(int choice) {
+		return choice_starts == null ? moves[choice] : choice_moves[choice];
+	}
+
+	public boolean isDefault(int state) {
+		return is_default[state];
+	}
+
+	public boolean isAcceptState(int state) {
+		return is_accept[state];
+	}
+
+	public State getState(int state) {
+		return states[state];
+	}
+
+	public int getStateCount() {
+		return states.length;
+	}
+
+	public char[] getSymbols() {
+		return symbols;
+	}
+
+	public int getSymbolCount() {
+		return symbol_count;
+	}
+
+	/**
+	 * A 64-bit hash of everything that decides how the machine runs: the symbols, which
+	 * states accept, reject or carry on, and the transition tables. Two machines with
+	 * the same hash accept the same inputs in the same number of steps, however their
+	 * states are named or whichever file they were loaded from. Worked out on first use.
+	 **/
+	public long getContentHash() {
+		if(!hashed) {
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			}
+			catch(NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+			buffer.putInt(states.length).putInt(symbol_count);
+			// single-tape machines keep the hash they had before tapes were counted
+			if(tapes > 1)
+				buffer.putInt(tapes);
+			for(char c : symbols)
+				update(digest, buffer, Character.BYTES).putChar(c);
+			for(int s = 0; s < states.length; s++)
+				update(digest, buffer, 1).put((byte) (is_default[s] ? 0 : is_accept[s] ? 1 : 2));
+			for(int i = 0; i < next_states.length; i++) {
+				update(digest, buffer, Integer.BYTES).putInt(next_states[i]);
+				for(int tape = 0; tape < tapes; tape++) {
+					update(digest, buffer, Integer.BYTES + 1);
+					if(next_states[i] == NO_TRANSITION)
+						buffer.putInt(0).put((byte) 0);
+					else
+						buffer.putInt(output_symbols[i * tapes + tape]).put((byte) moves[i * tapes + tape]);
+				}
+			}
+			if(choice_starts != null) {
+				for(int i = 0; i < choice_starts.length; i++)
+					update(digest, buffer, Integer.BYTES).putInt(choice_starts[i]);
+				for(int i = 0; i < choice_next_states.length; i++)
+					update(digest, buffer, 2 * Integer.BYTES + Character.BYTES).putInt(choice_next_states[i])
+							.putChar(choice_outputs[i]).putInt(choice_moves[i]);
+			}
+			update(digest, buffer, buffer.capacity());
+			content_hash = ByteBuffer.wrap(digest.digest()).getLong();
+			hashed = true;
+		}
+		return content_hash;
+	}
+
+	/**
+	 * Feeds the buffer to the digest if it has less than the given room left.
+	 **/
+	private static ByteBuffer update(MessageDigest digest, ByteBuffer buffer, int room) {
+		if(buffer.remaining() < room) {
+			buffer.flip();
+			digest.update(buffer);
+			buffer.clear();
+		}
+		return buffer;
+	}
+
+}
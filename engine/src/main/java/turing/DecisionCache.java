@@ -0,0 +1,192 @@
+package turing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DecisionCache {
+
+	/**
+	 * "TDC" followed by the format version, at the start of a saved cache.
+	 **/
+	private static final int MAGIC = 0x54444301;
+
+	/**
+	 * The codes decisions are saved as, fixed so that reordering Result cannot change
+	 * what a saved cache means. They are the ordinals the two results had when the
+	 * format was first written.
+	 **/
+	private static final int ACCEPT = 0;
+	private static final int REJECT = 1;
+
+	private final int max_entries;
+	private final long max_chars;
+	private final LinkedHashMap<Key, Decision> entries = new LinkedHashMap<Key, Decision>(16, 0.75f, true);
+
+	private long chars = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	private static final class Key {
+		final long machine;
+		final String input;
+		final int hash;
+
+		Key(long machine, String input) {
+			this.machine = machine;
+			this.input = input;
+			this.hash = Long.hashCode(machine) * 31 + input.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key))
+				return false;
+			Key key = (Key) other;
+			return machine == key.machine && input.equals(key.input);
+		}
+	}
+
+	/**
+	 * A cached decision: whether the machine accepted or rejected, and in how many steps.
+	 **/
+	public static final class Decision {
+		private final Result result;
+		private final long steps;
+
+		Decision(Result result, long steps) {
+			this.result = result;
+			this.steps = steps;
+		}
+
+		public Result getResult() {
+			return result;
+		}
+
+		public long getSteps() {
+			return steps;
+		}
+	}
+
+	/**
+	 * A cache of decided inputs, keyed by the content hash of the compiled machine and
+	 * the input itself, so one cache can serve several machines. It holds at most
+	 * max_entries decisions and max_chars characters of input between them, evicting
+	 * the least recently used decisions first. Only ACCEPT and REJECT are cached, since
+	 * an UNDECIDED result or an error depends on the limits in force at the time, and
+	 * DOES_NOT_HALT on whether cycle detection is on.
+	 * All methods are synchronized, so the cache can be shared between threads.
+	 **/
+	public DecisionCache(int max_entries, long max_chars) {
+		this.max_entries = max_entries;
+		this.max_chars = max_chars;
+	}
+
+	/**
+	 * Returns the cached decision for the input, or null if there is none.
+	 **/
+	public synchronized Decision get(CompiledMachine machine, CharSequence input) {
+		Decision decision = entries.get(new Key(machine.getContentHash(), input.toString()));
+		if(decision == null)
+			misses++;
+		else
+			hits++;
+		return decision;
+	}
+
+	/**
+	 * Caches the decision for the input, unless the input alone is over the size limit.
+	 **/
+	public synchronized void put(CompiledMachine machine, CharSequence input, Result result, long steps) {
+		if((result != Result.ACCEPT && result != Result.REJECT) || input.length() > max_chars)
+			return;
+		add(new Key(machine.getContentHash(), input.toString()), new Decision(result, steps));
+	}
+
+	private void add(Key key, Decision decision) {
+		if(entries.put(key, decision) == null)
+			chars += key.input.length();
+		while(entries.size() > max_entries || chars > max_chars) {
+			Map.Entry<Key, Decision> eldest = entries.entrySet().iterator().next();
+			chars -= eldest.getKey().input.length();
+			entries.remove(eldest.getKey());
+			evictions++;
+		}
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Adds the decisions saved in the file to the cache, as far as the size limits
+	 * allow. Throws an InputException if the file is not a saved cache, or holds
+	 * anything other than an accept or a reject, which put would never have cached.
+	 **/
+	public synchronized void load(String path) throws IOException, InputException {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16))) {
+			if(in.readInt() != MAGIC)
+				throw new InputException("Error: " + path + " is not a saved decision cache");
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				long machine = in.readLong();
+				int code = in.readByte();
+				long steps = in.readLong();
+				int length = in.readInt();
+				if((code != ACCEPT && code != REJECT) || steps < 0 || length < 0)
+					throw new InputException("Error: " + path + " is not a saved decision cache");
+				char[] input = new char[length];
+				for(int c = 0; c < length; c++)
+					input[c] = in.readChar();
+				add(new Key(machine, new String(input)), new Decision(code == ACCEPT ? Result.ACCEPT : Result.REJECT, steps));
+			}
+		}
+		catch(EOFException e) {
+			throw new InputException("Error: " + path + " is not a saved decision cache");
+		}
+	}
+
+	/**
+	 * Writes every cached decision to the file, least recently used first, so that
+	 * loading it back keeps the same order of eviction.
+	 **/
+	public synchronized void save(String path) throws IOException {
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(entries.size());
+			for(Map.Entry<Key, Decision> entry : entries.entrySet()) {
+				out.writeLong(entry.getKey().machine);
+				out.writeByte(entry.getValue().result == Result.ACCEPT ? ACCEPT : REJECT);
+				out.writeLong(entry.getValue().steps);
+				out.writeInt(entry.getKey().input.length());
+				out.writeChars(entry.getKey().input);
+			}
+		}
+	}
+
+}
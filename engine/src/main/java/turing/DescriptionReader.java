@@ -0,0 +1,103 @@
+package turing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits a machine description into lines and each line into its space-separated
+ * fields in a single pass over the file, instead of a Scanner and a String.split per
+ * line. Lines and fields come out exactly as Scanner.nextLine and split(" ") would give
+ * them, so the description is validated the same way it always has been.
+ **/
+final class DescriptionReader {
+
+	private final String text;
+	private final ArrayList<String> fields = new ArrayList<String>();
+
+	/**
+	 * One past the last character that is not whitespace, so that hasNext can tell
+	 * whether anything but blank lines is left without scanning ahead.
+	 **/
+	private final int last_token_end;
+
+	private int position = 0;
+
+	DescriptionReader(File file) throws FileNotFoundException, InputException {
+		byte[] bytes;
+		try(InputStream in = new FileInputStream(file)) {
+			bytes = in.readAllBytes();
+		}
+		catch(FileNotFoundException e) {
+			throw e;
+		}
+		catch(IOException e) {
+			throw new InputException("Error: could not read the machine description " + file);
+		}
+		text = new String(bytes, Charset.defaultCharset());
+
+		int end = text.length();
+		while(end > 0 && Character.isWhitespace(text.charAt(end - 1)))
+			end--;
+		last_token_end = end;
+	}
+
+	/**
+	 * Whether there is anything other than whitespace left, as Scanner.hasNext.
+	 **/
+	boolean hasNext() {
+		return position < last_token_end;
+	}
+
+	/**
+	 * Reads the next line and returns its fields as split(" ") would: empty fields
+	 * between repeated spaces are kept, trailing empty fields are dropped, and a line
+	 * with no spaces at all is a single field.
+	 * Throws a NoSuchElementException if there are no lines left, as Scanner.nextLine.
+	 **/
+	String[] nextFields() {
+		if(position >= text.length())
+			throw new NoSuchElementException("No line found");
+
+		fields.clear();
+		boolean separated = false;
+		int start = position;
+		int i = position;
+		for(; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == ' ') {
+				fields.add(text.substring(start, i));
+				start = i + 1;
+				separated = true;
+			}
+			else if(isLineSeparator(c))
+				break;
+		}
+		fields.add(text.substring(start, i));
+		position = skipLineSeparator(i);
+
+		int count = fields.size();
+		if(separated)
+			while(count > 0 && fields.get(count - 1).isEmpty())
+				count--;
+		return fields.subList(0, count).toArray(new String[count]);
+	}
+
+	private static boolean isLineSeparator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private int skipLineSeparator(int i) {
+		if(i >= text.length())
+			return i;
+		if(text.charAt(i) == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+			return i + 2;
+		return i + 1;
+	}
+
+}
@@ -0,0 +1,38 @@
+package turing;
+
+public enum Engine {
+
+	/**
+	 * The plain interpreter, one transition per step.
+	 **/
+	INTERPRETER,
+
+	/**
+	 * Replays cached runs through whole tape blocks, see MacroRunContext.
+	 **/
+	MACRO,
+
+	/**
+	 * Keeps the tape bit-packed and skips runs of a symbol the machine only moves over,
+	 * see PackedRunContext.
+	 **/
+	PACKED,
+
+	/**
+	 * Runs bytecode generated for the machine, see JitCompiler. Falls back to the
+	 * interpreter where the machine cannot be compiled.
+	 **/
+	JIT;
+
+	/**
+	 * Looks an engine up by its lower case name, as given on the command line.
+	 * Throws an InputException if there is no engine with that name.
+	 **/
+	public static Engine named(String name) throws InputException {
+		for(Engine engine : values())
+			if(engine.name().toLowerCase().equals(name))
+				return engine;
+		throw new InputException("Error: unknown engine " + name);
+	}
+
+}
@@ -0,0 +1,143 @@
+package turing;
+
+import java.io.PrintStream;
+
+public abstract class Evaluator {
+
+	/**
+	 * How many steps pass between checks of the clock when a timeout is set.
+	 **/
+	protected static final long CLOCK_INTERVAL = 1 << 16;
+
+	protected final CompiledMachine machine;
+	protected final PrintStream out;
+
+	protected long number_of_steps = 0;
+
+	private long max_steps = Long.MAX_VALUE;
+	private long timeout = 0;
+	private long deadline;
+	protected long next_check;
+
+	/**
+	 * An evaluator holds everything that changes while a machine evaluates an input.
+	 * The compiled machine itself is never modified, so any number of evaluators can
+	 * share it across threads, but a single evaluator must only be used by one thread
+	 * at a time. The -I and -P output is written to the given stream.
+	 **/
+	protected Evaluator(CompiledMachine machine, PrintStream out) {
+		this.machine = machine;
+		this.out = out;
+	}
+
+	/**
+	 * Takes in an input line from the input file and the interactive and performance
+	 * flags, and evaluates it from the machine's start state with the head on the first
+	 * character. Returns UNDECIDED if the step budget or timeout ran out first.
+	 * Throws an InputException if the input line is malformed.
+	 **/
+	public abstract Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException;
+
+	/**
+	 * Evaluates the input and returns true only if the machine halts in its accept state.
+	 * Throws an InputException if the input line is malformed.
+	 **/
+	public boolean canAccept(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		return run(input, i_mode, p_mode) == Result.ACCEPT;
+	}
+
+	public long getNumberOfSteps() {
+		return number_of_steps;
+	}
+
+	/**
+	 * The number of tape cells this evaluator holds storage for. Tape storage is reused
+	 * between inputs and only grows, so this is the high-water mark of every input run
+	 * so far.
+	 **/
+	public abstract int getTapeCells();
+
+	/**
+	 * The number of tape cells the last run used, from the leftmost to the rightmost
+	 * cell that held input or was written, or that the head ended on. Engines that do
+	 * not keep track of which cells were written count from the leftmost to the
+	 * rightmost cell that holds anything but the empty character instead.
+	 **/
+	public abstract int getCellsUsed();
+
+	/**
+	 * Sets the largest number of steps the machine may take on one input before it is
+	 * given up on as undecided.
+	 **/
+	public void setMaxSteps(long max_steps) {
+		this.max_steps = max_steps;
+	}
+
+	public long getMaxSteps() {
+		return max_steps;
+	}
+
+	/**
+	 * Sets how many milliseconds the machine may spend on one input before it is given
+	 * up on as undecided, or 0 for no limit.
+	 **/
+	public void setTimeout(long milliseconds) {
+		this.timeout = milliseconds * 1000000L;
+	}
+
+	/**
+	 * Resets the step count and starts the clock for a new input.
+	 **/
+	protected void startClock() {
+		number_of_steps = 0;
+		next_check = 0;
+		if(timeout > 0)
+			deadline = System.nanoTime() + timeout;
+	}
+
+	/**
+	 * Checks the step budget and the deadline, and if neither has been reached works
+	 * out the step count at which they next need checking. Step loops only call this
+	 * once number_of_steps reaches next_check, so they pay a single comparison per step
+	 * for the limits.
+	 **/
+	protected boolean limitReached() {
+		if(number_of_steps >= max_steps)
+			return true;
+		if(timeout > 0 && System.nanoTime() - deadline >= 0)
+			return true;
+		next_check = timeout > 0 ? Math.min(number_of_steps + CLOCK_INTERVAL, max_steps) : max_steps;
+		return false;
+	}
+
+	/**
+	 * The result once the step loop has stopped in the given state: a state that has
+	 * not halted means a limit was reached.
+	 **/
+	protected Result resultFor(int state) {
+		if(machine.isDefault(state))
+			return Result.UNDECIDED;
+		return machine.isAcceptState(state) ? Result.ACCEPT : Result.REJECT;
+	}
+
+	/**
+	 * The profile filled in by the last run, or null if this evaluator does not
+	 * profile. Only the plain interpreter does.
+	 **/
+	public Profile getProfile() {
+		return null;
+	}
+
+	/**
+	 * Prints the step count for -P. The pieces are written to the stream one at a time
+	 * rather than joined into a new string, since the input may be long.
+	 **/
+	protected void printSteps(CharSequence original_input) {
+		out.println("########################");
+		out.print("Number of steps on input ");
+		out.append(original_input);
+		out.println(": ");
+		out.println(number_of_steps);
+	}
+
+}
@@ -0,0 +1,115 @@
+package turing;
+
+import java.io.PrintStream;
+
+public class InProcessMetrics implements Metrics {
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private long accepted;
+	private long rejected;
+	private long undecided;
+	private long non_halting;
+	private long errors;
+	private long steps;
+	private long run_nanoseconds;
+	private int tape_high_water;
+	private final long started = System.nanoTime();
+
+	/**
+	 * Keeps counts of each result and of errors, the total steps and time spent running
+	 * inputs, a histogram of per-input latency and the most tape cells any input used, all in memory.
+	 * Recording takes a lock once per input, so one instance can be shared by every run
+	 * context of a parallel batch.
+	 **/
+	public InProcessMetrics() {
+	}
+
+	@Override
+	public synchronized void recordRun(Result result, long steps, long nanoseconds, int tape_cells) {
+		if(result == Result.ACCEPT)
+			accepted++;
+		else if(result == Result.REJECT)
+			rejected++;
+		else if(result == Result.DOES_NOT_HALT)
+			non_halting++;
+		else
+			undecided++;
+		this.steps += steps;
+		record(nanoseconds);
+		if(tape_cells > tape_high_water)
+			tape_high_water = tape_cells;
+	}
+
+	@Override
+	public synchronized void recordError(long nanoseconds) {
+		errors++;
+		record(nanoseconds);
+	}
+
+	private void record(long nanoseconds) {
+		latencies.record(nanoseconds);
+		run_nanoseconds += nanoseconds;
+	}
+
+	public synchronized long getAccepted() {
+		return accepted;
+	}
+
+	public synchronized long getRejected() {
+		return rejected;
+	}
+
+	public synchronized long getUndecided() {
+		return undecided;
+	}
+
+	public synchronized long getNonHalting() {
+		return non_halting;
+	}
+
+	public synchronized long getErrors() {
+		return errors;
+	}
+
+	public synchronized long getSteps() {
+		return steps;
+	}
+
+	public synchronized int getTapeHighWater() {
+		return tape_high_water;
+	}
+
+	/**
+	 * Steps taken per second spent running inputs, summed over threads.
+	 **/
+	public synchronized double getStepsPerSecond() {
+		return run_nanoseconds == 0 ? 0 : steps * 1e9 / run_nanoseconds;
+	}
+
+	/**
+	 * A copy of the latency histogram, in nanoseconds.
+	 **/
+	public synchronized LatencyHistogram getLatencies() {
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.add(latencies);
+		return copy;
+	}
+
+	/**
+	 * Prints the counts, throughput, latency percentiles and tape high-water mark.
+	 **/
+	public synchronized void printSummary(PrintStream out) {
+		long inputs = latencies.getCount();
+		double elapsed = (System.nanoTime() - started) / 1e9;
+		out.println("Inputs: " + inputs + " (" + accepted + " accepted, " + rejected + " rejected, "
+				+ undecided + " undecided, " + non_halting + " do not halt, " + errors + " errors)");
+		out.printf("Throughput: %.1f inputs/sec, %.0f steps/sec%n",
+				elapsed == 0 ? 0 : inputs / elapsed, getStepsPerSecond());
+		out.printf("Latency (us): min %.1f, mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+				latencies.getMin() / 1e3, latencies.getMean() / 1e3, latencies.getPercentile(50) / 1e3,
+				latencies.getPercentile(90) / 1e3, latencies.getPercentile(99) / 1e3,
+				latencies.getPercentile(99.9) / 1e3, latencies.getMax() / 1e3);
+		out.println("Tape high-water mark: " + tape_high_water + " cells");
+	}
+
+}
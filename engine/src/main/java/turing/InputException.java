@@ -1,3 +1,4 @@
+package turing;
 
 public class InputException extends Exception {
 
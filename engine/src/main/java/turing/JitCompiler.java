@@ -0,0 +1,295 @@
+package turing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Turns a compiled machine into a JVM class, so that HotSpot compiles the machine's own
+ * control flow instead of the interpreter's. Each state becomes a block of bytecode that
+ * checks the step limit and the tape bounds, then switches on the symbol under the head.
+ * Each case writes its output, moves the head, counts the step and jumps straight to the
+ * block of the next state. Anything else, such as halting, is handed back to the
+ * JitRunContext.
+ *
+ * HotSpot will not compile methods over 8000 bytes of bytecode, so consecutive states are
+ * grouped into static methods that stay below that. A transition into a state in another
+ * group returns to the JitRunContext, which calls straight back in.
+ *
+ * This class needs ASM on the classpath. TuringMachine falls back to the interpreter if
+ * ASM is missing or the machine is too large for a single class.
+ **/
+final class JitCompiler implements Opcodes {
+
+	/**
+	 * The most (state, symbol) pairs a machine may have to be compiled, keeping the
+	 * generated class well inside the limits of a class file.
+	 **/
+	static final int MAX_TRANSITIONS = 200000;
+
+	/**
+	 * An upper bound on the bytecode in one group of states, below HotSpot's limit.
+	 **/
+	private static final int GROUP_SIZE = 6000;
+
+	private static final String PROGRAM = "turing/JitProgram";
+	private static final String CONTEXT = "turing/JitRunContext";
+	private static final String GENERATED = "turing/GeneratedJitProgram";
+	private static final String GROUP_DESCRIPTOR = "(L" + CONTEXT + ";)I";
+
+	private static final int CONTEXT_VARIABLE = 0;
+	private static final int CELLS = 1;
+	private static final int POSITION = 2;
+	private static final int STEPS = 3;
+	private static final int LIMIT = 5;
+	private static final int CODE = 7;
+
+	private JitCompiler() {
+	}
+
+	/**
+	 * Generates, loads and instantiates the program for the machine, or returns null if
+	 * the machine has too many transitions to compile. The program is a hidden class in
+	 * this package, so it can reach JitRunContext's package-private fields.
+	 **/
+	static JitProgram compile(CompiledMachine machine) {
+		if((long) machine.getStateCount() * machine.getSymbolCount() > MAX_TRANSITIONS)
+			return null;
+
+		byte[] bytes;
+		try {
+			bytes = generate(machine);
+		}
+		catch(IndexOutOfBoundsException e) {
+			// ASM's MethodTooLargeException or ClassTooLargeException
+			return null;
+		}
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			return (JitProgram) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		}
+		catch(Throwable e) {
+			throw new IllegalStateException("Error: could not load the generated code for the machine", e);
+		}
+	}
+
+	private static byte[] generate(CompiledMachine machine) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+		writer.visit(V17, ACC_FINAL | ACC_SUPER, GENERATED, null, PROGRAM, null);
+
+		MethodVisitor constructor = writer.visitMethod(0, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(ALOAD, 0);
+		constructor.visitMethodInsn(INVOKESPECIAL, PROGRAM, "<init>", "()V", false);
+		constructor.visitInsn(RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+
+		int states = machine.getStateCount();
+		int[] groups = group(machine);
+
+		MethodVisitor execute = writer.visitMethod(0, "execute", GROUP_DESCRIPTOR, null, null);
+		execute.visitCode();
+		Label[] entries = new Label[states];
+		Label[] calls = new Label[groups[states - 1] + 1];
+		for(int i = 0; i < calls.length; i++)
+			calls[i] = new Label();
+		for(int state = 0; state < states; state++)
+			entries[state] = calls[groups[state]];
+		execute.visitVarInsn(ALOAD, 1);
+		execute.visitFieldInsn(GETFIELD, CONTEXT, "state", "I");
+		execute.visitTableSwitchInsn(0, states - 1, calls[0], entries);
+		for(int group = 0; group < calls.length; group++) {
+			execute.visitLabel(calls[group]);
+			execute.visitVarInsn(ALOAD, 1);
+			execute.visitMethodInsn(INVOKESTATIC, GENERATED, "group" + group, GROUP_DESCRIPTOR, false);
+			execute.visitInsn(IRETURN);
+		}
+		execute.visitMaxs(0, 0);
+		execute.visitEnd();
+
+		int first = 0;
+		for(int group = 0; group < calls.length; group++) {
+			int last = first;
+			while(last + 1 < states && groups[last + 1] == group)
+				last++;
+			MethodVisitor code = writer.visitMethod(ACC_PRIVATE | ACC_STATIC, "group" + group, GROUP_DESCRIPTOR, null, null);
+			code.visitCode();
+			generateGroup(code, machine, first, last);
+			code.visitMaxs(0, 0);
+			code.visitEnd();
+			first = last + 1;
+		}
+
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Assigns consecutive states to groups, starting a new group whenever the estimated
+	 * bytecode for the current one would pass GROUP_SIZE.
+	 **/
+	private static int[] group(CompiledMachine machine) {
+		int[] groups = new int[machine.getStateCount()];
+		int group = 0;
+		int size = 0;
+		for(int state = 0; state < groups.length; state++) {
+			int estimate = 64;
+			for(int symbol = 0; symbol < machine.getSymbolCount(); symbol++)
+				if(machine.lookup(state, symbol) != CompiledMachine.NO_TRANSITION)
+					estimate += 32;
+			if(size > 0 && size + estimate > GROUP_SIZE) {
+				group++;
+				size = 0;
+			}
+			size += estimate;
+			groups[state] = group;
+		}
+		return groups;
+	}
+
+	private static void generateGroup(MethodVisitor code, CompiledMachine machine, int first, int last) {
+		char[] symbols = machine.getSymbols();
+
+		Label[] blocks = new Label[last - first + 1];
+		for(int i = 0; i < blocks.length; i++)
+			blocks[i] = new Label();
+		Label save = new Label();
+
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitFieldInsn(GETFIELD, CONTEXT, "cells", "[C");
+		code.visitVarInsn(ASTORE, CELLS);
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitFieldInsn(GETFIELD, CONTEXT, "position", "I");
+		code.visitVarInsn(ISTORE, POSITION);
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitFieldInsn(GETFIELD, CONTEXT, "steps", "J");
+		code.visitVarInsn(LSTORE, STEPS);
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitFieldInsn(GETFIELD, CONTEXT, "limit", "J");
+		code.visitVarInsn(LSTORE, LIMIT);
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitFieldInsn(GETFIELD, CONTEXT, "state", "I");
+		code.visitTableSwitchInsn(first, last, blocks[0], blocks);
+
+		for(int state = first; state <= last; state++) {
+			code.visitLabel(blocks[state - first]);
+			if(!machine.isDefault(state)) {
+				returnCode(code, JitProgram.HALTED, state, save);
+				continue;
+			}
+
+			Label check = new Label();
+			Label grow = new Label();
+			Label missing = new Label();
+
+			code.visitVarInsn(LLOAD, STEPS);
+			code.visitVarInsn(LLOAD, LIMIT);
+			code.visitInsn(LCMP);
+			code.visitJumpInsn(IFEQ, check);
+			code.visitVarInsn(ILOAD, POSITION);
+			code.visitJumpInsn(IFLT, grow);
+			code.visitVarInsn(ILOAD, POSITION);
+			code.visitVarInsn(ALOAD, CELLS);
+			code.visitInsn(ARRAYLENGTH);
+			code.visitJumpInsn(IF_ICMPGE, grow);
+
+			int count = 0;
+			int[] keys = new int[symbols.length];
+			Label[] cases = new Label[symbols.length];
+			int[] transitions = new int[symbols.length];
+			for(int symbol : sortedSymbols(symbols)) {
+				int t = machine.lookup(state, machine.getSymbolId((char) symbol));
+				if(t == CompiledMachine.NO_TRANSITION)
+					continue;
+				keys[count] = symbol;
+				cases[count] = new Label();
+				transitions[count] = t;
+				count++;
+			}
+
+			code.visitVarInsn(ALOAD, CELLS);
+			code.visitVarInsn(ILOAD, POSITION);
+			code.visitInsn(CALOAD);
+			code.visitLookupSwitchInsn(missing, trim(keys, count), trim(cases, count));
+
+			for(int i = 0; i < count; i++) {
+				code.visitLabel(cases[i]);
+				int t = transitions[i];
+				int next = machine.getNextState(t);
+				if(!machine.isDefault(next)) {
+					returnCode(code, JitProgram.HALTED, next, save);
+					continue;
+				}
+				if(machine.getOutput(t) != keys[i]) {
+					code.visitVarInsn(ALOAD, CELLS);
+					code.visitVarInsn(ILOAD, POSITION);
+					code.visitLdcInsn(Integer.valueOf(machine.getOutput(t)));
+					code.visitInsn(CASTORE);
+				}
+				code.visitIincInsn(POSITION, machine.getMove(t));
+				code.visitVarInsn(LLOAD, STEPS);
+				code.visitInsn(LCONST_1);
+				code.visitInsn(LADD);
+				code.visitVarInsn(LSTORE, STEPS);
+				if(next >= first && next <= last)
+					code.visitJumpInsn(GOTO, blocks[next - first]);
+				else
+					returnCode(code, JitProgram.JUMP, next, save);
+			}
+
+			code.visitLabel(check);
+			returnCode(code, JitProgram.CHECK, state, save);
+			code.visitLabel(grow);
+			returnCode(code, JitProgram.GROW, state, save);
+			code.visitLabel(missing);
+			returnCode(code, JitProgram.MISSING, state, save);
+		}
+
+		code.visitLabel(save);
+		code.visitVarInsn(ISTORE, CODE);
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitVarInsn(ILOAD, POSITION);
+		code.visitFieldInsn(PUTFIELD, CONTEXT, "position", "I");
+		code.visitVarInsn(ALOAD, CONTEXT_VARIABLE);
+		code.visitVarInsn(LLOAD, STEPS);
+		code.visitFieldInsn(PUTFIELD, CONTEXT, "steps", "J");
+		code.visitVarInsn(ILOAD, CODE);
+		code.visitInsn(IRETURN);
+	}
+
+	private static void returnCode(MethodVisitor code, int action, int state, Label save) {
+		code.visitLdcInsn(Integer.valueOf(action << JitProgram.ACTION_SHIFT | state));
+		code.visitJumpInsn(GOTO, save);
+	}
+
+	/**
+	 * lookupswitch keys must be in ascending order.
+	 **/
+	private static int[] sortedSymbols(char[] symbols) {
+		int[] sorted = new int[symbols.length];
+		for(int i = 0; i < symbols.length; i++)
+			sorted[i] = symbols[i];
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	private static int[] trim(int[] array, int length) {
+		int[] trimmed = new int[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	private static Label[] trim(Label[] array, int length) {
+		Label[] trimmed = new Label[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+}
@@ -0,0 +1,40 @@
+package turing;
+
+/**
+ * The base class of the code JitCompiler generates for a machine. execute runs the
+ * machine on the context's tape from the context's state until it halts or needs the
+ * context's help, and returns an action in the top bits and a state id in the rest.
+ **/
+abstract class JitProgram {
+
+	static final int STATE_MASK = (1 << 28) - 1;
+	static final int ACTION_SHIFT = 28;
+
+	/**
+	 * The machine moved into the given halting state.
+	 **/
+	static final int HALTED = 0;
+
+	/**
+	 * The step count reached the context's limit on entering the given state.
+	 **/
+	static final int CHECK = 1;
+
+	/**
+	 * The head moved off the end of the tape array in the given state.
+	 **/
+	static final int GROW = 2;
+
+	/**
+	 * There is no transition from the given state for the symbol under the head.
+	 **/
+	static final int MISSING = 3;
+
+	/**
+	 * The machine moved into the given state, whose code is in another method.
+	 **/
+	static final int JUMP = 4;
+
+	abstract int execute(JitRunContext context);
+
+}
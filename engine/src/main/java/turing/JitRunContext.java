@@ -0,0 +1,171 @@
+package turing;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+public class JitRunContext extends Evaluator {
+
+	/**
+	 * The tape array grows by at least a chunk at a time, and at least doubles, in
+	 * either direction.
+	 **/
+	private static final int CHUNK_SIZE = 1024;
+
+	private final JitProgram program;
+	private final RunContext interpreter;
+
+	/**
+	 * The generated code reads these fields when it starts and writes position and steps
+	 * back when it returns. Unwritten cells of cells hold the empty character, so the
+	 * code only needs to hand back control when the head leaves the array.
+	 **/
+	char[] cells = new char[CHUNK_SIZE];
+	int position;
+	long steps;
+	long limit;
+	int state;
+
+	/**
+	 * The index the input starts at, which moves right as the array grows to the left,
+	 * so that the next input reuses the room made for this one.
+	 **/
+	private int origin = 0;
+	private int input_length;
+	private boolean interpreted = false;
+
+	/**
+	 * Runs the code that JitCompiler generated for the machine. The generated code only
+	 * returns here when the machine halts, reaches next_check, runs off the end of the
+	 * tape array, has no transition or moves to a state generated into another method,
+	 * so most steps never leave the generated class.
+	 **/
+	JitRunContext(CompiledMachine machine, PrintStream out, JitProgram program) {
+		super(machine, out);
+		this.program = program;
+		this.interpreter = new RunContext(machine, out);
+	}
+
+	@Override
+	public void setMaxSteps(long max_steps) {
+		super.setMaxSteps(max_steps);
+		interpreter.setMaxSteps(max_steps);
+	}
+
+	@Override
+	public void setTimeout(long milliseconds) {
+		super.setTimeout(milliseconds);
+		interpreter.setTimeout(milliseconds);
+	}
+
+	@Override
+	public int getTapeCells() {
+		return Math.max(cells.length, interpreter.getTapeCells());
+	}
+
+	/**
+	 * The generated code does not keep track of which cells it wrote, so this counts
+	 * from the leftmost to the rightmost cell that is not empty.
+	 **/
+	@Override
+	public int getCellsUsed() {
+		if(interpreted)
+			return interpreter.getCellsUsed();
+		int from = Math.min(origin, position);
+		int to = Math.max(origin + input_length, position + 1);
+		char empty = Transition.emptyCharacter();
+		for(int i = 0; i < from; i++) {
+			if(cells[i] != empty) {
+				from = i;
+				break;
+			}
+		}
+		for(int i = cells.length - 1; i >= to; i--) {
+			if(cells[i] != empty) {
+				to = i + 1;
+				break;
+			}
+		}
+		return to - from;
+	}
+
+	/**
+	 * The -I trace has to show every transition, so in interactive mode the input is
+	 * handed to the plain interpreter instead.
+	 **/
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		interpreted = i_mode;
+		input_length = input.length();
+		if(i_mode) {
+			Result result = interpreter.run(input, i_mode, p_mode);
+			number_of_steps = interpreter.getNumberOfSteps();
+			return result;
+		}
+
+		load(input);
+		state = machine.getStartState();
+		startClock();
+
+		while(true) {
+			steps = number_of_steps;
+			limit = next_check;
+			int code = program.execute(this);
+			number_of_steps = steps;
+			state = code & JitProgram.STATE_MASK;
+			int action = code >>> JitProgram.ACTION_SHIFT;
+			if(action == JitProgram.HALTED)
+				break;
+			else if(action == JitProgram.CHECK && limitReached())
+				break;
+			else if(action == JitProgram.GROW)
+				grow();
+			else if(action == JitProgram.MISSING)
+				throw new InputException("Error: there is no transition possible given the state and input.");
+		}
+
+		if(p_mode)
+			printSteps(input);
+
+		return resultFor(state);
+	}
+
+	private void load(CharSequence input) {
+		int length = input.length();
+		if(origin + length >= cells.length) {
+			origin = 0;
+			if(length >= cells.length)
+				cells = new char[roundUp(length + 1)];
+		}
+		Arrays.fill(cells, 0, origin, Transition.emptyCharacter());
+		for(int i = 0; i < length; i++)
+			cells[origin + i] = input.charAt(i);
+		Arrays.fill(cells, origin + length, cells.length, Transition.emptyCharacter());
+		position = origin;
+	}
+
+	/**
+	 * Grows the tape array on whichever side the head has run off, by as much as it
+	 * already holds, up to the largest array that can be allocated, keeping position
+	 * pointing at the same cell.
+	 **/
+	private void grow() {
+		int extra = Math.max(CHUNK_SIZE, Math.min(cells.length, Integer.MAX_VALUE - 8 - cells.length));
+		char[] grown = new char[cells.length + extra];
+		if(position < 0) {
+			System.arraycopy(cells, 0, grown, extra, cells.length);
+			Arrays.fill(grown, 0, extra, Transition.emptyCharacter());
+			position += extra;
+			origin += extra;
+		}
+		else {
+			System.arraycopy(cells, 0, grown, 0, cells.length);
+			Arrays.fill(grown, cells.length, grown.length, Transition.emptyCharacter());
+		}
+		cells = grown;
+	}
+
+	private static int roundUp(int size) {
+		return (size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+	}
+
+}
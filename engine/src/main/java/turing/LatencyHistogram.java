@@ -0,0 +1,101 @@
+package turing;
+
+public class LatencyHistogram {
+
+	/**
+	 * Each power of two is split into 2^(SUB_BUCKET_BITS - 1) equal buckets, so any
+	 * recorded value is known to within 1/64 of itself.
+	 **/
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long total_count;
+	private long min = Long.MAX_VALUE;
+	private long max;
+	private long sum;
+
+	/**
+	 * A histogram of non-negative values laid out like an HDR histogram: values below
+	 * 128 have a bucket each, and above that every power of two is split into 64
+	 * buckets, so the whole range of a long fits in a fixed array of a few thousand
+	 * counts with a relative error under 2%. Recording a value never allocates.
+	 **/
+	public LatencyHistogram() {
+	}
+
+	static int bucketFor(long value) {
+		if(value < SUB_BUCKETS)
+			return (int) value;
+		int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+	}
+
+	/**
+	 * The largest value that falls into the bucket.
+	 **/
+	static long highestIn(int bucket) {
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+		int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long sub = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	public void record(long value) {
+		if(value < 0)
+			value = 0;
+		counts[bucketFor(value)]++;
+		total_count++;
+		sum += value;
+		if(value < min)
+			min = value;
+		if(value > max)
+			max = value;
+	}
+
+	public void add(LatencyHistogram other) {
+		for(int i = 0; i < BUCKETS; i++)
+			counts[i] += other.counts[i];
+		total_count += other.total_count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public long getCount() {
+		return total_count;
+	}
+
+	public long getMin() {
+		return total_count == 0 ? 0 : min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return total_count == 0 ? 0 : (double) sum / total_count;
+	}
+
+	/**
+	 * The value below which the given percentage of recorded values fall, to within
+	 * the histogram's precision and never above the largest value recorded.
+	 **/
+	public long getPercentile(double percentile) {
+		if(total_count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total_count));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if(seen >= rank)
+				return Math.min(highestIn(i), max);
+		}
+		return max;
+	}
+
+}
@@ -0,0 +1,327 @@
+package turing;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A static analysis of a compiled machine, made without running any input. It finds
+ * the states that cannot be reached from the start state, and so the transitions out
+ * of them that can never fire, and the (state, symbol) pairs a reachable state has no
+ * transition for, which would otherwise only show up as an InputException part way
+ * through a run. A nondeterministic machine leaves transitions out on purpose, to end
+ * the branches that take them, so its missing transitions are not reported.
+ *
+ * On a deterministic single-tape machine it also looks for two kinds of loop that can
+ * never halt once entered:
+ *
+ *   a drift, a cycle of states that read a blank and all move the same way, so that
+ *   on the blank tape past either end of the input the machine moves on forever; and
+ *
+ *   a repeat, found by following the machine for a few steps from each (state,
+ *   symbol) pair over every possible choice of the cells it reads, where the machine
+ *   comes back to a configuration it has already been in, having read only cells it
+ *   already knew. Such a machine never writes anything new and never moves away.
+ **/
+public class MachineAnalysis {
+
+	/**
+	 * How far a repeat is followed from each (state, symbol) pair, and how many steps
+	 * in all may be taken over every choice of the cells read.
+	 **/
+	private static final int MAX_DEPTH = 16;
+	private static final int MAX_STEPS = 256;
+
+	private static final int UNKNOWN = -1;
+
+	private final CompiledMachine machine;
+	private final boolean[] reachable;
+	private final List<State> unreachable_states = new ArrayList<State>();
+	private final List<String> missing_transitions = new ArrayList<String>();
+	private final List<String> loops = new ArrayList<String>();
+	private final HashSet<String> reported = new HashSet<String>();
+	private int dead_transitions = 0;
+	private CompiledMachine pruned;
+
+	/**
+	 * The repeat search keeps the states, head positions and cells of the
+	 * configurations on the current path, and the cells it has assumed the tape held.
+	 **/
+	private final int[] path_states = new int[MAX_DEPTH + 1];
+	private final int[] path_positions = new int[MAX_DEPTH + 1];
+	private final int[][] path_cells = new int[MAX_DEPTH + 1][2 * MAX_DEPTH + 1];
+	private final int[] assumed = new int[2 * MAX_DEPTH + 1];
+	private int steps_left;
+
+	/**
+	 * Analyses the machine. This takes time linear in the size of the transition table,
+	 * plus a bounded search for repeats from each (state, symbol) pair.
+	 **/
+	public MachineAnalysis(CompiledMachine machine) {
+		this(machine, true);
+	}
+
+	/**
+	 * Analyses the machine, looking for loops that never halt only if asked to. Without
+	 * them the analysis takes time linear in the size of the transition table, which is
+	 * cheap enough to make every time a machine is loaded.
+	 **/
+	public MachineAnalysis(CompiledMachine machine, boolean finding_loops) {
+		this.machine = machine;
+		reachable = findReachable();
+
+		for(int s = 0; s < machine.getStateCount(); s++) {
+			if(reachable[s])
+				continue;
+			unreachable_states.add(machine.getState(s));
+			for(int key = 0; key < machine.getKeyCount(); key++)
+				dead_transitions += choices(s, key);
+		}
+
+		if(machine.getTapeCount() == 1 && machine.isDeterministic())
+			findMissingTransitions();
+		if(finding_loops && machine.getTapeCount() == 1 && machine.isDeterministic()) {
+			findDrifts(-1);
+			findDrifts(1);
+			findRepeats();
+		}
+	}
+
+	private int choices(int state, int key) {
+		if(machine.getTapeCount() > 1)
+			return machine.lookupKey(state, key) == CompiledMachine.NO_TRANSITION ? 0 : 1;
+		return machine.getChoiceEnd(state, key) - machine.getChoiceStart(state, key);
+	}
+
+	private boolean[] findReachable() {
+		boolean[] seen = new boolean[machine.getStateCount()];
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		seen[machine.getStartState()] = true;
+		queue.add(machine.getStartState());
+		while(!queue.isEmpty()) {
+			int state = queue.poll();
+			if(!machine.isDefault(state))
+				continue;
+			for(int key = 0; key < machine.getKeyCount(); key++) {
+				if(machine.getTapeCount() > 1) {
+					int t = machine.lookupKey(state, key);
+					if(t != CompiledMachine.NO_TRANSITION)
+						visit(machine.getNextState(t), seen, queue);
+					continue;
+				}
+				int end = machine.getChoiceEnd(state, key);
+				for(int c = machine.getChoiceStart(state, key); c < end; c++)
+					visit(machine.getChoiceNextState(c), seen, queue);
+			}
+		}
+		return seen;
+	}
+
+	private static void visit(int state, boolean[] seen, ArrayDeque<Integer> queue) {
+		if(!seen[state]) {
+			seen[state] = true;
+			queue.add(state);
+		}
+	}
+
+	private void findMissingTransitions() {
+		char[] symbols = machine.getSymbols();
+		for(int s = 0; s < machine.getStateCount(); s++)
+			if(reachable[s] && machine.isDefault(s))
+				for(int symbol = 0; symbol < symbols.length; symbol++)
+					if(machine.lookup(s, symbol) == CompiledMachine.NO_TRANSITION)
+						missing_transitions.add(machine.getState(s).getName() + " " + symbols[symbol]);
+	}
+
+	/**
+	 * Follows the blank transitions that move in the given direction from each
+	 * reachable state, and reports every cycle they close.
+	 **/
+	private void findDrifts(int direction) {
+		int blank = machine.getBlankSymbol();
+		int[] colour = new int[machine.getStateCount()];
+		int[] walk = new int[machine.getStateCount()];
+		for(int s = 0; s < machine.getStateCount(); s++) {
+			if(!reachable[s] || !machine.isDefault(s) || colour[s] != 0)
+				continue;
+			int length = 0;
+			int state = s;
+			while(state != CompiledMachine.NO_TRANSITION && colour[state] == 0) {
+				colour[state] = 1;
+				walk[length++] = state;
+				int t = machine.lookup(state, blank);
+				if(t == CompiledMachine.NO_TRANSITION || machine.getMove(t) != direction
+						|| !machine.isDefault(machine.getNextState(t)))
+					state = CompiledMachine.NO_TRANSITION;
+				else
+					state = machine.getNextState(t);
+			}
+			if(state != CompiledMachine.NO_TRANSITION && colour[state] == 1) {
+				int start = 0;
+				while(walk[start] != state)
+					start++;
+				report(Arrays.copyOfRange(walk, start, length),
+						"moves " + (direction < 0 ? "left" : "right") + " over blank tape forever");
+			}
+			for(int i = 0; i < length; i++)
+				colour[walk[i]] = 2;
+		}
+	}
+
+	private void findRepeats() {
+		for(int s = 0; s < machine.getStateCount(); s++) {
+			if(!reachable[s] || !machine.isDefault(s))
+				continue;
+			for(int symbol = 0; symbol < machine.getSymbolCount(); symbol++) {
+				if(machine.lookup(s, symbol) == CompiledMachine.NO_TRANSITION)
+					continue;
+				int[] cells = new int[2 * MAX_DEPTH + 1];
+				Arrays.fill(cells, UNKNOWN);
+				Arrays.fill(assumed, UNKNOWN);
+				cells[MAX_DEPTH] = symbol;
+				assumed[MAX_DEPTH] = symbol;
+				steps_left = MAX_STEPS;
+				follow(s, MAX_DEPTH, cells, 0);
+			}
+		}
+	}
+
+	/**
+	 * Follows the machine from the configuration, trying every symbol a cell it has not
+	 * seen yet could hold. Returns true once it has found a repeat.
+	 **/
+	private boolean follow(int state, int position, int[] cells, int depth) {
+		for(int i = 0; i < depth; i++) {
+			if(path_states[i] == state && path_positions[i] == position && sameCells(path_cells[i], cells)) {
+				report(Arrays.copyOfRange(path_states, i, depth), "repeats the same configuration forever");
+				return true;
+			}
+		}
+		if(depth == MAX_DEPTH || steps_left-- <= 0)
+			return false;
+		path_states[depth] = state;
+		path_positions[depth] = position;
+		System.arraycopy(cells, 0, path_cells[depth], 0, cells.length);
+
+		if(cells[position] != UNKNOWN)
+			return step(state, position, cells, depth);
+		for(int symbol = 0; symbol < machine.getSymbolCount(); symbol++) {
+			if(machine.lookup(state, symbol) == CompiledMachine.NO_TRANSITION)
+				continue;
+			cells[position] = symbol;
+			assumed[position] = symbol;
+			boolean found = step(state, position, cells, depth);
+			cells[position] = UNKNOWN;
+			assumed[position] = UNKNOWN;
+			if(found)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean step(int state, int position, int[] cells, int depth) {
+		int t = machine.lookup(state, cells[position]);
+		if(t == CompiledMachine.NO_TRANSITION || !machine.isDefault(machine.getNextState(t)))
+			return false;
+		int next = position + machine.getMove(t);
+		if(next < 0 || next >= cells.length)
+			return false;
+		int[] written = cells.clone();
+		written[position] = machine.getOutputSymbol(t);
+		return follow(machine.getNextState(t), next, written, depth + 1);
+	}
+
+	/**
+	 * Whether an earlier configuration's cells match the current ones, taking a cell
+	 * it did not know yet to hold what was later assumed for it.
+	 **/
+	private boolean sameCells(int[] earlier, int[] cells) {
+		for(int i = 0; i < cells.length; i++)
+			if((earlier[i] == UNKNOWN ? assumed[i] : earlier[i]) != cells[i])
+				return false;
+		return true;
+	}
+
+	private void report(int[] cycle, String description) {
+		int[] sorted = cycle.clone();
+		Arrays.sort(sorted);
+		if(!reported.add(Arrays.toString(sorted) + description))
+			return;
+		StringBuilder line = new StringBuilder();
+		for(int state : cycle)
+			line.append(machine.getState(state).getName()).append(' ');
+		loops.add(line.append(description).toString());
+	}
+
+	public List<State> getUnreachableStates() {
+		return unreachable_states;
+	}
+
+	public boolean isReachable(int state) {
+		return reachable[state];
+	}
+
+	/**
+	 * The number of transitions out of unreachable states.
+	 **/
+	public int getDeadTransitions() {
+		return dead_transitions;
+	}
+
+	/**
+	 * Each missing transition as the state name and the symbol, separated by a space.
+	 **/
+	public List<String> getMissingTransitions() {
+		return missing_transitions;
+	}
+
+	/**
+	 * Each loop that can never halt, as the states in it followed by what it does.
+	 **/
+	public List<String> getNonHaltingLoops() {
+		return loops;
+	}
+
+	/**
+	 * The machine without the transitions that can never fire, or the machine itself if
+	 * there are none.
+	 **/
+	public CompiledMachine getPrunedMachine() {
+		if(dead_transitions == 0)
+			return machine;
+		if(pruned == null)
+			pruned = machine.pruned(reachable);
+		return pruned;
+	}
+
+	public void print(PrintStream out) {
+		out.println("Unreachable states: " + unreachable_states.size());
+		for(State state : unreachable_states)
+			out.println("  " + state.getName());
+		out.println("Transitions that can never fire: " + dead_transitions);
+		out.println("Missing transitions: " + missing_transitions.size());
+		for(String missing : missing_transitions)
+			out.println("  " + missing);
+		out.println("Loops that never halt: " + loops.size());
+		for(String loop : loops)
+			out.println("  " + loop);
+	}
+
+	/**
+	 * Prints a warning for each unreachable state, and for each missing transition if
+	 * the machine is run deterministically, where a missing transition is an error;
+	 * run nondeterministically it only ends a branch. Prints nothing if there is
+	 * nothing to warn about.
+	 **/
+	public void warn(PrintStream out, boolean deterministic_run) {
+		for(State state : unreachable_states)
+			out.println("Warning: state " + state.getName() + " cannot be reached from the start state");
+		if(deterministic_run)
+			for(String missing : missing_transitions)
+				out.println("Warning: no transition for state and symbol " + missing);
+	}
+
+}
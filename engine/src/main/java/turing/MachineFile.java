@@ -0,0 +1,164 @@
+package turing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes compiled machines in the binary .tmc format, so that a machine can
+ * be loaded without parsing or validating its description again. The file holds the
+ * declared alphabet, the symbol table, each state's name and status, and the flat
+ * transition arrays of the CompiledMachine, all big-endian:
+ *
+ *   int magic, int state count, int symbol count, int alphabet length,
+ *   char[] alphabet, char[] symbols,
+ *   per state: byte status, int name length, char[] name,
+ *   int[] next states, int[] output symbol ids, byte[] moves
+ *
+ * where the three arrays hold state count * symbol count entries each.
+ **/
+final class MachineFile {
+
+	static final String EXTENSION = ".tmc";
+
+	/**
+	 * "TMC" followed by the format version.
+	 **/
+	private static final int MAGIC = 0x544D4301;
+
+	private static final byte DEFAULT = 0;
+	private static final byte ACCEPT = 1;
+	private static final byte REJECT = 2;
+
+	final char[] alphabet;
+	final CompiledMachine machine;
+
+	private MachineFile(char[] alphabet, CompiledMachine machine) {
+		this.alphabet = alphabet;
+		this.machine = machine;
+	}
+
+	static void write(CompiledMachine machine, char[] alphabet, String path) throws IOException {
+		if(!machine.isDeterministic())
+			throw new IOException("Error: only deterministic machines can be compiled to " + EXTENSION);
+		if(machine.getTapeCount() > 1)
+			throw new IOException("Error: only single-tape machines can be compiled to " + EXTENSION);
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+			int states = machine.getStateCount();
+			int symbols = machine.getSymbolCount();
+			out.writeInt(MAGIC);
+			out.writeInt(states);
+			out.writeInt(symbols);
+			out.writeInt(alphabet.length);
+			for(char c : alphabet)
+				out.writeChar(c);
+			for(char c : machine.getSymbols())
+				out.writeChar(c);
+
+			for(int s = 0; s < states; s++) {
+				State state = machine.getState(s);
+				out.writeByte(state.isDefault() ? DEFAULT : state.isAcceptState() ? ACCEPT : REJECT);
+				out.writeInt(state.getName().length());
+				out.writeChars(state.getName());
+			}
+
+			int size = states * symbols;
+			for(int i = 0; i < size; i++)
+				out.writeInt(machine.getNextState(i));
+			for(int i = 0; i < size; i++)
+				out.writeInt(machine.getNextState(i) == CompiledMachine.NO_TRANSITION ? 0 : machine.getOutputSymbol(i));
+			for(int i = 0; i < size; i++)
+				out.writeByte(machine.getMove(i));
+		}
+	}
+
+	/**
+	 * Maps the file into memory and copies its tables straight out of the mapping.
+	 * The tables are only checked to stay within bounds, since they were validated when
+	 * the machine was first compiled.
+	 * Throws a FileNotFoundException if there is no file, and an InputException if it
+	 * is not a compiled machine.
+	 **/
+	static MachineFile read(String path) throws InputException, FileNotFoundException {
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch(NoSuchFileException e) {
+			throw new FileNotFoundException(path + " (No such file or directory)");
+		}
+		catch(IOException e) {
+			throw new InputException("Error: could not read the compiled machine " + path);
+		}
+
+		try {
+			return read(buffer);
+		}
+		catch(BufferUnderflowException | IllegalArgumentException e) {
+			throw new InputException("Error: " + path + " is not a valid compiled machine");
+		}
+	}
+
+	private static MachineFile read(ByteBuffer buffer) throws InputException {
+		if(buffer.getInt() != MAGIC)
+			throw new IllegalArgumentException();
+		int state_count = buffer.getInt();
+		int symbol_count = buffer.getInt();
+		int alphabet_length = buffer.getInt();
+		if(state_count <= 0 || symbol_count <= 0 || alphabet_length < 0
+				|| (long) state_count * symbol_count > Integer.MAX_VALUE)
+			throw new IllegalArgumentException();
+
+		char[] alphabet = chars(buffer, alphabet_length);
+		char[] symbols = chars(buffer, symbol_count);
+
+		State[] states = new State[state_count];
+		for(int s = 0; s < state_count; s++) {
+			byte status = buffer.get();
+			String name = new String(chars(buffer, buffer.getInt()));
+			states[s] = new State(name, status == ACCEPT ? "+" : status == REJECT ? "-" : "");
+		}
+
+		int size = state_count * symbol_count;
+		int[] next_states = ints(buffer, size);
+		int[] output_symbols = ints(buffer, size);
+		int[] moves = new int[size];
+		for(int i = 0; i < size; i++) {
+			moves[i] = buffer.get();
+			if(next_states[i] < CompiledMachine.NO_TRANSITION || next_states[i] >= state_count
+					|| output_symbols[i] < 0 || output_symbols[i] >= symbol_count)
+				throw new IllegalArgumentException();
+			if(next_states[i] != CompiledMachine.NO_TRANSITION && moves[i] != -1 && moves[i] != 1)
+				throw new IllegalArgumentException();
+		}
+
+		return new MachineFile(alphabet, new CompiledMachine(states, symbols, next_states, output_symbols, moves));
+	}
+
+	private static char[] chars(ByteBuffer buffer, int length) {
+		if(length < 0 || buffer.remaining() / Character.BYTES < length)
+			throw new BufferUnderflowException();
+		char[] chars = new char[length];
+		buffer.asCharBuffer().get(chars);
+		buffer.position(buffer.position() + length * Character.BYTES);
+		return chars;
+	}
+
+	private static int[] ints(ByteBuffer buffer, int length) {
+		if(buffer.remaining() / Integer.BYTES < length)
+			throw new BufferUnderflowException();
+		int[] ints = new int[length];
+		buffer.asIntBuffer().get(ints);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return ints;
+	}
+
+}
@@ -0,0 +1,269 @@
+package turing;
+
+import java.io.PrintStream;
+
+public class MacroRunContext extends Evaluator {
+
+	/**
+	 * Wider blocks replay longer runs at once, so by default blocks are as wide as the
+	 * packed symbols allow.
+	 **/
+	public static final int DEFAULT_BLOCK_WIDTH = Long.SIZE;
+	public static final int DEFAULT_CACHE_BITS = 16;
+
+	private static final int LEFT = 0;
+	private static final int RIGHT = 1;
+	private static final int HALT = 2;
+
+	private final int width;
+	private final int unknown;
+	private final PackedTape tape;
+	private final int[] cells;
+	private final RunContext interpreter;
+
+	/**
+	 * A direct-mapped cache of macro-steps. The key is the state the machine entered a
+	 * block in, the side it entered from, and the block's contents. The value is the
+	 * block's contents when the machine leaves it, the side it leaves from (or HALT),
+	 * the state it is in then, and the number of steps it took inside the block.
+	 **/
+	private final int cache_shift;
+	private final int[] key_entries;
+	private final long[] key_contents;
+	private final long[] exit_contents;
+	private final int[] exit_states;
+	private final byte[] exit_sides;
+	private final long[] exit_steps;
+
+	private long hits;
+	private long misses;
+
+	private int block;
+	private int offset;
+	private int input_length;
+	private boolean interpreted = false;
+	private int current_state;
+
+	public MacroRunContext(CompiledMachine machine, PrintStream out) {
+		this(machine, out, DEFAULT_BLOCK_WIDTH, DEFAULT_CACHE_BITS);
+	}
+
+	/**
+	 * A macro-step evaluator treats the tape as blocks of width cells, and the first
+	 * time the machine enters a block with given contents in a given state from a given
+	 * side, runs it one step at a time until it leaves the block or halts. That outcome
+	 * is cached, so the next time the same block is entered the same way the whole run
+	 * through it is replayed in one step. Results and step counts are exactly those of
+	 * the plain interpreter. The cache holds 2^cache_bits entries.
+	 *
+	 * Symbols are packed into the blocks as ids, with one extra id standing for any
+	 * character outside the tape alphabet, so wider blocks may be cut down to fit a long.
+	 **/
+	public MacroRunContext(CompiledMachine machine, PrintStream out, int width, int cache_bits) {
+		super(machine, out);
+		int bits = PackedTape.bitsFor(machine.getSymbolCount() + 1);
+		this.width = Math.max(1, Math.min(width, Long.SIZE / bits));
+		this.unknown = machine.getSymbolCount();
+		this.tape = new PackedTape(bits, this.width, machine.getBlankSymbol());
+		this.cells = new int[this.width];
+		this.interpreter = new RunContext(machine, out);
+
+		int size = 1 << cache_bits;
+		cache_shift = Long.SIZE - cache_bits;
+		key_entries = new int[size];
+		key_contents = new long[size];
+		exit_contents = new long[size];
+		exit_states = new int[size];
+		exit_sides = new byte[size];
+		exit_steps = new long[size];
+	}
+
+	@Override
+	public void setMaxSteps(long max_steps) {
+		super.setMaxSteps(max_steps);
+		interpreter.setMaxSteps(max_steps);
+	}
+
+	@Override
+	public void setTimeout(long milliseconds) {
+		super.setTimeout(milliseconds);
+		interpreter.setTimeout(milliseconds);
+	}
+
+	@Override
+	public int getTapeCells() {
+		return Math.max(tape.getCapacity(), interpreter.getTapeCells());
+	}
+
+	@Override
+	public int getCellsUsed() {
+		return interpreted ? interpreter.getCellsUsed() : tape.span(block * width + offset, input_length);
+	}
+
+	public long getCacheHits() {
+		return hits;
+	}
+
+	public long getCacheMisses() {
+		return misses;
+	}
+
+	/**
+	 * The -I trace has to show every transition, so in interactive mode the input is
+	 * handed to the plain interpreter instead.
+	 **/
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		interpreted = i_mode;
+		input_length = input.length();
+		if(i_mode) {
+			Result result = interpreter.run(input, i_mode, p_mode);
+			number_of_steps = interpreter.getNumberOfSteps();
+			return result;
+		}
+
+		load(input);
+		block = 0;
+		offset = 0;
+		current_state = machine.getStartState();
+		startClock();
+
+		while(machine.isDefault(current_state)) {
+			if(number_of_steps >= next_check && limitReached())
+				break;
+			if(!replay())
+				simulate();
+		}
+
+		if(p_mode)
+			printSteps(input);
+
+		return resultFor(current_state);
+	}
+
+	private void load(CharSequence input) {
+		tape.clear();
+		for(int i = 0; i < input.length(); i++) {
+			int symbol = machine.getSymbolId(input.charAt(i));
+			tape.write(i, symbol == CompiledMachine.NO_SYMBOL ? unknown : symbol);
+		}
+	}
+
+	/**
+	 * The machine is always at one edge of a block here, so the offset says which side it
+	 * entered from. Entries are stored one past the state id so that 0 marks an empty slot.
+	 **/
+	private int entry() {
+		return (current_state << 1 | (offset == 0 ? LEFT : RIGHT)) + 1;
+	}
+
+	private int slot(int entry, long contents) {
+		long hash = contents * 0x9E3779B97F4A7C15L + entry * 0xC2B2AE3D27D4EB4FL;
+		return (int) ((hash ^ hash >>> 29) >>> cache_shift);
+	}
+
+	/**
+	 * Replays a cached macro-step for the current block if there is one and it fits in
+	 * what is left of the step budget. A run ending in a halt must finish strictly within
+	 * the budget, since the plain interpreter checks the budget before every transition
+	 * including the halting one. Returns false if the block has to be simulated.
+	 **/
+	private boolean replay() {
+		int entry = entry();
+		long contents = tape.getWord(block);
+		int slot = slot(entry, contents);
+		if(key_entries[slot] != entry || key_contents[slot] != contents)
+			return false;
+
+		long steps = number_of_steps + exit_steps[slot];
+		int side = exit_sides[slot];
+		if(side == HALT ? steps >= getMaxSteps() : steps > getMaxSteps())
+			return false;
+
+		hits++;
+		tape.setWord(block, exit_contents[slot]);
+		current_state = exit_states[slot];
+		number_of_steps = steps;
+		move(side);
+		return true;
+	}
+
+	/**
+	 * Runs the machine one step at a time until it leaves the current block or halts,
+	 * then caches the outcome under the block's contents and the state and side it was
+	 * entered in. If a limit is reached part way through, the partial run is not cached.
+	 * Throws an InputException if there is no transition possible.
+	 **/
+	private void simulate() throws InputException {
+		misses++;
+		int entry = entry();
+		long contents = tape.getWord(block);
+		for(int i = 0; i < width; i++)
+			cells[i] = tape.cell(contents, i);
+		long start = number_of_steps;
+
+		int side = HALT;
+		int position = offset;
+		int state = current_state;
+		boolean stopped = false;
+		while(true) {
+			if(number_of_steps >= next_check && limitReached()) {
+				stopped = true;
+				break;
+			}
+			int symbol = cells[position];
+			int t = symbol == unknown ? CompiledMachine.NO_TRANSITION : machine.lookup(state, symbol);
+			if(t == CompiledMachine.NO_TRANSITION)
+				throw new InputException("Error: there is no transition possible given the state and input.");
+			int next = machine.getNextState(t);
+			if(!machine.isDefault(next)) {
+				state = next;
+				break;
+			}
+			cells[position] = machine.getOutputSymbol(t);
+			position += machine.getMove(t);
+			state = next;
+			number_of_steps++;
+			if(position < 0) {
+				side = LEFT;
+				break;
+			}
+			if(position >= width) {
+				side = RIGHT;
+				break;
+			}
+		}
+
+		long result = 0;
+		for(int i = 0; i < width; i++)
+			result = tape.withCell(result, i, cells[i]);
+		tape.setWord(block, result);
+		current_state = state;
+
+		if(stopped) {
+			offset = position;
+			return;
+		}
+
+		int slot = slot(entry, contents);
+		key_entries[slot] = entry;
+		key_contents[slot] = contents;
+		exit_contents[slot] = result;
+		exit_states[slot] = state;
+		exit_sides[slot] = (byte) side;
+		exit_steps[slot] = number_of_steps - start;
+		move(side);
+	}
+
+	private void move(int side) {
+		if(side == LEFT) {
+			block--;
+			offset = width - 1;
+		}
+		else if(side == RIGHT) {
+			block++;
+			offset = 0;
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package turing;
+
+/**
+ * Wraps another evaluator and reports each input it runs to a Metrics, timing the run
+ * and noting its result, steps and the tape cells it used. Only run is timed; the evaluator's step
+ * loop is untouched.
+ **/
+class MeteredEvaluator extends Evaluator {
+
+	private final Evaluator evaluator;
+	private final Metrics metrics;
+
+	MeteredEvaluator(Evaluator evaluator, Metrics metrics) {
+		super(evaluator.machine, evaluator.out);
+		this.evaluator = evaluator;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		long start = System.nanoTime();
+		Result result;
+		try {
+			result = evaluator.run(input, i_mode, p_mode);
+		}
+		catch(InputException e) {
+			number_of_steps = evaluator.getNumberOfSteps();
+			metrics.recordError(System.nanoTime() - start);
+			throw e;
+		}
+		long elapsed = System.nanoTime() - start;
+		number_of_steps = evaluator.getNumberOfSteps();
+		metrics.recordRun(result, number_of_steps, elapsed, evaluator.getCellsUsed());
+		return result;
+	}
+
+	@Override
+	public void setMaxSteps(long max_steps) {
+		super.setMaxSteps(max_steps);
+		evaluator.setMaxSteps(max_steps);
+	}
+
+	@Override
+	public void setTimeout(long milliseconds) {
+		super.setTimeout(milliseconds);
+		evaluator.setTimeout(milliseconds);
+	}
+
+	@Override
+	public int getTapeCells() {
+		return evaluator.getTapeCells();
+	}
+
+	@Override
+	public int getCellsUsed() {
+		return evaluator.getCellsUsed();
+	}
+
+	@Override
+	public Profile getProfile() {
+		return evaluator.getProfile();
+	}
+
+	/**
+	 * The evaluator doing the work.
+	 **/
+	Evaluator getEvaluator() {
+		return evaluator;
+	}
+
+}
@@ -0,0 +1,26 @@
+package turing;
+
+/**
+ * Receives a record of every input a machine decides, for monitoring a machine that is
+ * embedded in a longer-running program. Records are made once per input rather than
+ * per step, and an implementation may be called from several threads at once when run
+ * contexts are used in parallel.
+ *
+ * Set one with TuringMachine.setMetrics; InProcessMetrics keeps the records in memory
+ * and can print a summary.
+ **/
+public interface Metrics {
+
+	/**
+	 * An input was decided, or given up on as UNDECIDED, after the given number of
+	 * steps and nanoseconds, using the given number of tape cells.
+	 **/
+	void recordRun(Result result, long steps, long nanoseconds, int tape_cells);
+
+	/**
+	 * An input raised an InputException, such as there being no transition possible,
+	 * after the given number of nanoseconds.
+	 **/
+	void recordError(long nanoseconds);
+
+}
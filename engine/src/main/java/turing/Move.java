@@ -0,0 +1,39 @@
+package turing;
+
+public class Move {
+
+	private static final String LEFT = "L";
+	private static final String RIGHT = "R";
+	private static final String STAY = "S";
+	
+	private String direction = "";
+	
+	/**
+	 * Move constructor that accepts a direction. 
+	 * Throws an InputException if the direction is invalid.
+	 **/
+	public Move(String direction) throws InputException {
+		if(direction.equals(LEFT) || direction.equals(RIGHT))
+			this.direction = direction;
+		else
+			throw new InputException("Error: a turing machine can only move left (L) or right (R)");
+	}
+	
+	/**
+	 * As above, but for a head of a machine with several tapes, which may also stay
+	 * where it is while the other heads move.
+	 **/
+	public Move(String direction, boolean can_stay) throws InputException {
+		if(direction.equals(LEFT) || direction.equals(RIGHT) || (can_stay && direction.equals(STAY)))
+			this.direction = direction;
+		else if(can_stay)
+			throw new InputException("Error: each head of a turing machine can only move left (L) or right (R), or stay (S)");
+		else
+			throw new InputException("Error: a turing machine can only move left (L) or right (R)");
+	}
+
+	public String getDirection() {
+		return direction;
+	}
+	
+}
@@ -0,0 +1,118 @@
+package turing;
+
+import java.io.PrintStream;
+
+/**
+ * The interpreter for machines with several tapes. The input is written on the first
+ * tape and the others start blank. Each tape has its own Tape and head, and each step
+ * reads the symbol under every head, combines their symbol ids into a single key and
+ * finds the transition with one lookup, as the single-tape interpreter does with one
+ * symbol.
+ **/
+public class MultiTapeRunContext extends Evaluator {
+
+	private final int tape_count;
+	private final int symbol_count;
+	private final Tape[] tapes;
+	private final int[] positions;
+	private int current_state;
+	private final StringBuilder line = new StringBuilder();
+
+	public MultiTapeRunContext(CompiledMachine machine) {
+		this(machine, System.out);
+	}
+
+	public MultiTapeRunContext(CompiledMachine machine, PrintStream out) {
+		super(machine, out);
+		tape_count = machine.getTapeCount();
+		symbol_count = machine.getSymbolCount();
+		tapes = new Tape[tape_count];
+		for(int i = 0; i < tape_count; i++)
+			tapes[i] = new Tape();
+		positions = new int[tape_count];
+	}
+
+	@Override
+	public int getTapeCells() {
+		int cells = 0;
+		for(Tape tape : tapes)
+			cells += tape.getCapacity();
+		return cells;
+	}
+
+	@Override
+	public int getCellsUsed() {
+		int cells = 0;
+		for(int i = 0; i < tape_count; i++)
+			cells += tapes[i].span(positions[i]);
+		return cells;
+	}
+
+	/**
+	 * Writes the input onto the first tape, blanks the others and evaluates it as
+	 * RunContext does, stopping when the machine halts or a limit is reached. With -I,
+	 * every tape is printed after each transition.
+	 * Throws an InputException if there is no transition for what the heads read.
+	 **/
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		tapes[0].load(input);
+		for(int i = 1; i < tape_count; i++)
+			tapes[i].load("");
+		for(int i = 0; i < tape_count; i++)
+			positions[i] = 0;
+		current_state = machine.getStartState();
+		startClock();
+
+		while(machine.isDefault(current_state)) {
+			if(number_of_steps == next_check && limitReached())
+				break;
+			int t = machine.lookupKey(current_state, readKey());
+			if(t == CompiledMachine.NO_TRANSITION)
+				throw new InputException("Error: there is no transition possible given the state and input.");
+			current_state = machine.getNextState(t);
+			if(!machine.isDefault(current_state))
+				break;
+			for(int i = 0; i < tape_count; i++) {
+				tapes[i].write(positions[i], machine.getOutput(t, i));
+				positions[i] += machine.getMove(t, i);
+			}
+
+			if(i_mode)
+				printTransition(machine.getTransition(t));
+			number_of_steps++;
+		}
+
+		if(p_mode)
+			printSteps(input);
+
+		return resultFor(current_state);
+	}
+
+	/**
+	 * Combines the symbol ids under the heads into the key the transition table is
+	 * indexed by. Throws an InputException if a head is on a character outside the
+	 * tape alphabet.
+	 **/
+	private int readKey() throws InputException {
+		int key = 0;
+		for(int i = tape_count - 1; i >= 0; i--) {
+			int symbol = machine.getSymbolId(tapes[i].read(positions[i]));
+			if(symbol == CompiledMachine.NO_SYMBOL)
+				throw new InputException("Error: there is no transition possible given the state and input.");
+			key = key * symbol_count + symbol;
+		}
+		return key;
+	}
+
+	private void printTransition(Transition t) {
+		for(Tape tape : tapes) {
+			line.setLength(0);
+			if(tape.appendTo(line, RunContext.SCREEN_SIZE))
+				line.append("...");
+			out.println(line);
+		}
+		out.println(t.print());
+	}
+
+}
@@ -0,0 +1,229 @@
+package turing;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates inputs on a nondeterministic machine by exploring every branch of the run
+ * breadth-first, one level of configurations per step. Each level is a set, so branches
+ * that reach the same state, head position and tape are only followed once, and tapes
+ * are PersistentTapes, so branches share every cell they have not written since they
+ * split. The input is accepted as soon as any branch reaches the accept state, and
+ * rejected once every branch has reached the reject state or has no transition to take.
+ *
+ * The number of steps is the depth of the level the run was decided at, so on a
+ * deterministic machine it agrees with the other engines. If a level would hold more
+ * configurations than the budget allows, the rest are dropped; the level is still
+ * checked for acceptance, but if nothing accepts the input is UNDECIDED, since a
+ * dropped branch might have.
+ **/
+public class NondeterministicRunContext extends Evaluator {
+
+	/**
+	 * Levels smaller than this are expanded by a single thread.
+	 **/
+	private static final int SPLIT_THRESHOLD = 64;
+
+	private final ForkJoinPool pool;
+	private long budget = Long.MAX_VALUE;
+	private int tape_cells = 0;
+
+	private volatile boolean accepted;
+	private volatile boolean overflowed;
+	private final AtomicLong held = new AtomicLong();
+	private final AtomicInteger widest = new AtomicInteger();
+
+	private static final class Configuration {
+		final int state;
+		final int position;
+		final PersistentTape tape;
+		final int hash;
+
+		Configuration(int state, int position, PersistentTape tape) {
+			this.state = state;
+			this.position = position;
+			this.tape = tape;
+			long h = tape.getHash() ^ ((long) state * 0x9E3779B97F4A7C15L) ^ ((long) position * 0xC2B2AE3D27D4EB4FL);
+			this.hash = (int) (h ^ h >>> 32);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Configuration))
+				return false;
+			Configuration configuration = (Configuration) other;
+			return state == configuration.state && position == configuration.position
+					&& tape.equals(configuration.tape);
+		}
+	}
+
+	public NondeterministicRunContext(CompiledMachine machine) {
+		this(machine, System.out, null);
+	}
+
+	/**
+	 * Given a fork-join pool, each level is split between its workers, which steal work
+	 * from each other as their share of the level runs out; without one, levels are
+	 * expanded by the calling thread. The pool belongs to the caller, which may share it
+	 * between contexts and shuts it down when it is done with them.
+	 **/
+	public NondeterministicRunContext(CompiledMachine machine, PrintStream out, ForkJoinPool pool) {
+		super(machine, out);
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the most configurations a single level may hold.
+	 **/
+	public void setConfigurationBudget(long budget) {
+		this.budget = budget;
+	}
+
+	@Override
+	public int getTapeCells() {
+		return tape_cells;
+	}
+
+	/**
+	 * The most cells any one branch's tape spanned in the last run.
+	 **/
+	@Override
+	public int getCellsUsed() {
+		return widest.get();
+	}
+
+	/**
+	 * Explores the run level by level until it is decided or a limit is reached. The
+	 * step budget limits the depth. With -I, the number of configurations in each level
+	 * is printed.
+	 **/
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		startClock();
+		widest.set(0);
+		Result result = explore(input, i_mode);
+		if(p_mode)
+			printSteps(input);
+		return result;
+	}
+
+	private Result explore(CharSequence input, boolean i_mode) {
+		int start = machine.getStartState();
+		if(!machine.isDefault(start))
+			return resultFor(start);
+
+		List<Configuration> level = Collections.singletonList(new Configuration(start, 0, new PersistentTape(input)));
+		while(true) {
+			if(limitReached())
+				return Result.UNDECIDED;
+			if(i_mode)
+				out.println("Step " + number_of_steps + ": " + level.size() + " configurations");
+
+			Set<Configuration> next = expand(level);
+			tape_cells = Math.max(tape_cells, widest.get());
+			if(accepted)
+				return Result.ACCEPT;
+			if(overflowed)
+				return Result.UNDECIDED;
+			if(next.isEmpty())
+				return Result.REJECT;
+
+			level = new ArrayList<Configuration>(next);
+			number_of_steps++;
+		}
+	}
+
+	private Set<Configuration> expand(List<Configuration> level) {
+		accepted = false;
+		overflowed = false;
+		held.set(0);
+		if(pool == null || level.size() < SPLIT_THRESHOLD) {
+			Set<Configuration> next = new HashSet<Configuration>();
+			expand(level, 0, level.size(), next);
+			return next;
+		}
+
+		Set<Configuration> next = ConcurrentHashMap.newKeySet();
+		pool.invoke(new Expansion(level, 0, level.size(), next));
+		return next;
+	}
+
+	/**
+	 * Adds every successor of the configurations from..to-1 of the level to next,
+	 * stopping early once any branch has accepted.
+	 **/
+	private void expand(List<Configuration> level, int from, int to, Set<Configuration> next) {
+		int widest_here = 0;
+		for(int i = from; i < to && !accepted; i++) {
+			Configuration configuration = level.get(i);
+			int symbol = machine.getSymbolId(configuration.tape.read(configuration.position));
+			if(symbol == CompiledMachine.NO_SYMBOL)
+				continue;
+
+			int end = machine.getChoiceEnd(configuration.state, symbol);
+			for(int c = machine.getChoiceStart(configuration.state, symbol); c < end; c++) {
+				int state = machine.getChoiceNextState(c);
+				if(!machine.isDefault(state)) {
+					if(machine.isAcceptState(state))
+						accepted = true;
+					continue;
+				}
+				if(overflowed)
+					continue;
+
+				PersistentTape tape = configuration.tape.write(configuration.position, machine.getChoiceOutput(c));
+				Configuration successor = new Configuration(state, configuration.position + machine.getChoiceMove(c), tape);
+				if(held.incrementAndGet() > budget) {
+					held.decrementAndGet();
+					overflowed = true;
+				}
+				else if(!next.add(successor))
+					held.decrementAndGet();
+				else
+					widest_here = Math.max(widest_here, tape.getCells());
+			}
+		}
+		widest.accumulateAndGet(widest_here, Math::max);
+	}
+
+	private final class Expansion extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Configuration> level;
+		private final int from;
+		private final int to;
+		private final Set<Configuration> next;
+
+		Expansion(List<Configuration> level, int from, int to, Set<Configuration> next) {
+			this.level = level;
+			this.from = from;
+			this.to = to;
+			this.next = next;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= SPLIT_THRESHOLD) {
+				expand(level, from, to, next);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Expansion(level, from, middle, next), new Expansion(level, middle, to, next));
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package turing;
+
+import java.io.PrintStream;
+
+public class PackedRunContext extends Evaluator {
+
+	private final PackedTape tape;
+	private final int unknown;
+	private final RunContext interpreter;
+
+	private int position;
+	private int current_state;
+	private int input_length;
+	private boolean interpreted = false;
+
+	/**
+	 * The packed evaluator keeps the tape as symbol ids in a PackedTape, with as few
+	 * bits per cell as the alphabet, the empty character and one extra id for any
+	 * character outside the alphabet need, and as many cells to each long as fit. A
+	 * machine with a five symbol alphabet uses three bits a cell rather than the
+	 * sixteen of a char.
+	 *
+	 * Otherwise it takes one transition at a time as the interpreter does, except that
+	 * when the machine is sweeping, in a state that just moves over the symbol it is on,
+	 * the cells ahead that the state would sweep over too are measured a word at a time
+	 * and skipped in one go, each of them counting as a step. Results and step counts
+	 * are exactly those of the plain interpreter.
+	 **/
+	public PackedRunContext(CompiledMachine machine, PrintStream out) {
+		super(machine, out);
+		int bits = PackedTape.bitsFor(machine.getSymbolCount() + 1);
+		this.tape = new PackedTape(bits, Long.SIZE / bits, machine.getBlankSymbol());
+		this.unknown = machine.getSymbolCount();
+		this.interpreter = new RunContext(machine, out);
+	}
+
+	@Override
+	public void setMaxSteps(long max_steps) {
+		super.setMaxSteps(max_steps);
+		interpreter.setMaxSteps(max_steps);
+	}
+
+	@Override
+	public void setTimeout(long milliseconds) {
+		super.setTimeout(milliseconds);
+		interpreter.setTimeout(milliseconds);
+	}
+
+	@Override
+	public int getTapeCells() {
+		return Math.max(tape.getCapacity(), interpreter.getTapeCells());
+	}
+
+	@Override
+	public int getCellsUsed() {
+		return interpreted ? interpreter.getCellsUsed() : tape.span(position, input_length);
+	}
+
+	/**
+	 * The -I trace has to show every transition, so in interactive mode the input is
+	 * handed to the plain interpreter instead.
+	 * Throws an InputException if there is no transition possible.
+	 **/
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		interpreted = i_mode;
+		input_length = input.length();
+		if(i_mode) {
+			Result result = interpreter.run(input, i_mode, p_mode);
+			number_of_steps = interpreter.getNumberOfSteps();
+			return result;
+		}
+
+		load(input);
+		position = 0;
+		current_state = machine.getStartState();
+		startClock();
+
+		while(machine.isDefault(current_state)) {
+			if(number_of_steps == next_check && limitReached())
+				break;
+			int symbol = tape.read(position);
+			int t = symbol == unknown ? CompiledMachine.NO_TRANSITION : machine.lookup(current_state, symbol);
+			if(t == CompiledMachine.NO_TRANSITION)
+				throw new InputException("Error: there is no transition possible given the state and input.");
+
+			// never skip past the next step the limits are checked at
+			int direction = machine.getSweepMove(t);
+			if(direction != 0) {
+				int[] symbols = machine.getSweepSymbols(current_state, direction);
+				int skipped = tape.scan(position, symbols, direction, (int) Math.min(next_check - number_of_steps, Integer.MAX_VALUE));
+				if(skipped > 0) {
+					position += direction * skipped;
+					number_of_steps += skipped;
+					continue;
+				}
+			}
+
+			int next = machine.getNextState(t);
+			current_state = next;
+			if(!machine.isDefault(next))
+				break;
+			tape.write(position, machine.getOutputSymbol(t));
+			position += machine.getMove(t);
+			number_of_steps++;
+		}
+
+		if(p_mode)
+			printSteps(input);
+
+		return resultFor(current_state);
+	}
+
+	private void load(CharSequence input) {
+		tape.clear();
+		for(int i = 0; i < input.length(); i++) {
+			int symbol = machine.getSymbolId(input.charAt(i));
+			tape.write(i, symbol == CompiledMachine.NO_SYMBOL ? unknown : symbol);
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+package turing;
+
+public class PackedTape {
+
+	/**
+	 * The tape grows by whole chunks of words, at least as many as it already has, in
+	 * either direction.
+	 **/
+	private static final int CHUNK_SIZE = 256;
+
+	private final int bits;
+	private final int cells_per_word;
+	private final long cell_mask;
+	private final int blank;
+	private final long blank_word;
+
+	/**
+	 * A word with 1 in every cell, which times a symbol id gives a word of nothing but
+	 * that symbol, and masks of the top bit and the other bits of every cell.
+	 **/
+	private final long ones;
+	private final long high_bits;
+	private final long low_bits;
+
+	private long[] words;
+
+	/**
+	 * The index into words of word 0, which starts at tape position 0. Words to the left
+	 * of the input have negative indices.
+	 **/
+	private int origin;
+
+	/**
+	 * A tape of symbol ids rather than characters, packed bits to a cell and
+	 * cells_per_word cells to each long, lowest bits first. Cells that have never been
+	 * written hold the blank symbol id.
+	 **/
+	public PackedTape(int bits, int cells_per_word, int blank) {
+		if(bits * cells_per_word > Long.SIZE)
+			throw new IllegalArgumentException("Error: " + cells_per_word + " cells of " + bits + " bits do not fit in a word");
+		this.bits = bits;
+		this.cells_per_word = cells_per_word;
+		this.cell_mask = (1L << bits) - 1;
+		this.blank = blank;
+
+		long word = 0;
+		for(int i = 0; i < cells_per_word; i++)
+			word |= 1L << (i * bits);
+		this.ones = word;
+		this.blank_word = word * blank;
+		this.high_bits = word << (bits - 1);
+		this.low_bits = word * ((1L << (bits - 1)) - 1);
+
+		words = new long[CHUNK_SIZE];
+		clear();
+	}
+
+	/**
+	 * The number of bits needed to store any of the given number of distinct symbols.
+	 **/
+	public static int bitsFor(int symbols) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(symbols - 1));
+	}
+
+	/**
+	 * Blanks the whole tape, keeping its storage.
+	 **/
+	public void clear() {
+		for(int i = 0; i < words.length; i++)
+			words[i] = blank_word;
+		origin = words.length / 2;
+	}
+
+	public int getCellsPerWord() {
+		return cells_per_word;
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	public long getBlankWord() {
+		return blank_word;
+	}
+
+	public int getBlank() {
+		return blank;
+	}
+
+	/**
+	 * The number of cells of storage the tape has grown to.
+	 **/
+	public int getCapacity() {
+		return words.length * cells_per_word;
+	}
+
+	/**
+	 * The number of cells from the leftmost to the rightmost that hold anything but the
+	 * blank symbol id, taking in positions 0 up to length and the given head position
+	 * as well. Blank words are skipped whole.
+	 **/
+	public int span(int position, int length) {
+		int from = Math.min(0, position);
+		int to = Math.max(length, position + 1);
+		int first = 0;
+		while(first < words.length && words[first] == blank_word)
+			first++;
+		if(first == words.length)
+			return to - from;
+		int last = words.length - 1;
+		while(words[last] == blank_word)
+			last--;
+
+		int leftmost = (first - origin) * cells_per_word;
+		while(cell(words[first], leftmost - (first - origin) * cells_per_word) == blank)
+			leftmost++;
+		int rightmost = (last - origin + 1) * cells_per_word - 1;
+		while(cell(words[last], rightmost - (last - origin) * cells_per_word) == blank)
+			rightmost--;
+		return Math.max(to, rightmost + 1) - Math.min(from, leftmost);
+	}
+
+	public static int wordIndex(int position, int cells_per_word) {
+		return Math.floorDiv(position, cells_per_word);
+	}
+
+	public long getWord(int word) {
+		int index = origin + word;
+		if(index < 0 || index >= words.length)
+			return blank_word;
+		return words[index];
+	}
+
+	public void setWord(int word, long value) {
+		int index = origin + word;
+		if(index < 0 || index >= words.length)
+			index = grow(word);
+		words[index] = value;
+	}
+
+	/**
+	 * The symbol id in the given cell of a word.
+	 **/
+	public int cell(long word, int offset) {
+		return (int) (word >>> (offset * bits) & cell_mask);
+	}
+
+	/**
+	 * The word with the given cell replaced by the symbol id.
+	 **/
+	public long withCell(long word, int offset, int symbol) {
+		int shift = offset * bits;
+		return word & ~(cell_mask << shift) | (long) symbol << shift;
+	}
+
+	public int read(int position) {
+		int word = Math.floorDiv(position, cells_per_word);
+		return cell(getWord(word), position - word * cells_per_word);
+	}
+
+	public void write(int position, int symbol) {
+		int word = Math.floorDiv(position, cells_per_word);
+		setWord(word, withCell(getWord(word), position - word * cells_per_word, symbol));
+	}
+
+	/**
+	 * Counts the cells from position onwards, moving in the given direction, that hold
+	 * any of the symbol ids, stopping at the first that does not, after limit cells, or
+	 * at the end of the storage the tape has grown to. Each word is checked whole, as a
+	 * memchr would: XORing it with a word of nothing but one of the symbols leaves a
+	 * cell zero exactly where the cell matches, and adding the low bits of each cell to
+	 * themselves carries into its top bit unless they are all zero. So the top bits of
+	 * the cells that match none of the symbols are found without taking the word apart,
+	 * and the first of them ahead of the head from the lowest or highest one set.
+	 **/
+	public int scan(int position, int[] symbols, int direction, int limit) {
+		int word = Math.floorDiv(position, cells_per_word);
+		int offset = position - word * cells_per_word;
+		int count = 0;
+		while(count < limit) {
+			int index = origin + word;
+			if(index < 0 || index >= words.length)
+				break;
+			long value = words[index];
+			long matches = 0;
+			for(int symbol : symbols) {
+				long differences = value ^ ones * symbol;
+				matches |= ~(((differences & low_bits) + low_bits) | differences);
+			}
+			long stops = high_bits & ~matches;
+			if(direction > 0) {
+				stops &= -1L << (offset * bits);
+				if(stops != 0) {
+					count += Long.numberOfTrailingZeros(stops) / bits - offset;
+					break;
+				}
+				count += cells_per_word - offset;
+				offset = 0;
+				word++;
+			}
+			else {
+				stops &= lowBits((offset + 1) * bits);
+				if(stops != 0) {
+					count += offset - (Long.SIZE - 1 - Long.numberOfLeadingZeros(stops)) / bits;
+					break;
+				}
+				count += offset + 1;
+				offset = cells_per_word - 1;
+				word--;
+			}
+		}
+		return Math.min(count, limit);
+	}
+
+	/**
+	 * A mask of the lowest n bits of a word, for n from 0 to 64.
+	 **/
+	private static long lowBits(int n) {
+		return n == Long.SIZE ? -1L : (1L << n) - 1;
+	}
+
+	/**
+	 * Grows the backing array so that it covers the given word, and returns that word's
+	 * new index. Since the array at least doubles, a head that keeps moving the same way
+	 * costs amortised constant copying per word rather than a copy of the whole tape
+	 * every chunk.
+	 **/
+	private int grow(int word) {
+		int index = origin + word;
+		if(index < 0) {
+			int extra = Math.max(roundUp(-index), headroom());
+			long[] grown = new long[words.length + extra];
+			System.arraycopy(words, 0, grown, extra, words.length);
+			for(int i = 0; i < extra; i++)
+				grown[i] = blank_word;
+			words = grown;
+			origin += extra;
+		}
+		else {
+			long[] grown = new long[Math.max(roundUp(index + 1), words.length + headroom())];
+			System.arraycopy(words, 0, grown, 0, words.length);
+			for(int i = words.length; i < grown.length; i++)
+				grown[i] = blank_word;
+			words = grown;
+		}
+		return origin + word;
+	}
+
+	/**
+	 * The words to grow by beyond those needed: the current length, capped so the array
+	 * stays allocatable.
+	 **/
+	private int headroom() {
+		return Math.min(words.length, Integer.MAX_VALUE - 8 - words.length);
+	}
+
+	private static int roundUp(int size) {
+		return (size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+	}
+
+}
@@ -0,0 +1,148 @@
+package turing;
+
+import java.util.Arrays;
+
+/**
+ * An immutable tape for exploring many branches of a run at once. The tape is kept as
+ * chunks of 64 cells, and a write returns a new tape that copies only the chunk written
+ * to and the array of chunk references, sharing every other chunk with the tape it came
+ * from. Branches that split from the same configuration therefore share all but the
+ * cells they have written since.
+ *
+ * Each tape carries a Zobrist hash: the XOR of a fixed random value for every
+ * (position, symbol) pair on it, with blank cells contributing nothing. A write updates
+ * it in constant time, so configurations can be hashed without reading the tape.
+ **/
+final class PersistentTape {
+
+	private static final int CHUNK_BITS = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private static final char[] BLANK_CHUNK = blankChunk();
+
+	/**
+	 * chunks[i] holds positions (first_chunk + i) * CHUNK_SIZE onwards. A null chunk is
+	 * all blank, as is everything outside the array.
+	 **/
+	private final char[][] chunks;
+	private final int first_chunk;
+	private final long hash;
+
+	public PersistentTape(CharSequence input) {
+		int length = input.length();
+		chunks = new char[Math.max(1, (length + CHUNK_MASK) >> CHUNK_BITS)][];
+		first_chunk = 0;
+		long h = 0;
+		for(int i = 0; i < chunks.length; i++)
+			chunks[i] = blankChunk();
+		for(int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			chunks[i >> CHUNK_BITS][i & CHUNK_MASK] = c;
+			h ^= zobrist(i, c);
+		}
+		hash = h;
+	}
+
+	private PersistentTape(char[][] chunks, int first_chunk, long hash) {
+		this.chunks = chunks;
+		this.first_chunk = first_chunk;
+		this.hash = hash;
+	}
+
+	public char read(int position) {
+		char[] chunk = chunkAt(position >> CHUNK_BITS);
+		return chunk[position & CHUNK_MASK];
+	}
+
+	/**
+	 * Returns a tape that differs from this one only in holding symbol at position, or
+	 * this tape itself if it already does.
+	 **/
+	public PersistentTape write(int position, char symbol) {
+		char old = read(position);
+		if(old == symbol)
+			return this;
+
+		int chunk = position >> CHUNK_BITS;
+		int first = Math.min(first_chunk, chunk);
+		int last = Math.max(first_chunk + chunks.length - 1, chunk);
+		char[][] copied = new char[last - first + 1][];
+		System.arraycopy(chunks, 0, copied, first_chunk - first, chunks.length);
+
+		char[] cells = copied[chunk - first];
+		cells = cells == null ? blankChunk() : cells.clone();
+		cells[position & CHUNK_MASK] = symbol;
+		copied[chunk - first] = cells;
+
+		return new PersistentTape(copied, first, hash ^ zobrist(position, old) ^ zobrist(position, symbol));
+	}
+
+	/**
+	 * The number of cells the tape spans, blank or not.
+	 **/
+	public int getCells() {
+		return chunks.length << CHUNK_BITS;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ hash >>> 32);
+	}
+
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Two tapes are equal if they hold the same symbol at every position. Chunks the
+	 * two tapes share are not compared.
+	 **/
+	@Override
+	public boolean equals(Object other) {
+		if(this == other)
+			return true;
+		if(!(other instanceof PersistentTape))
+			return false;
+		PersistentTape tape = (PersistentTape) other;
+		if(hash != tape.hash)
+			return false;
+
+		int first = Math.min(first_chunk, tape.first_chunk);
+		int last = Math.max(first_chunk + chunks.length, tape.first_chunk + tape.chunks.length);
+		for(int i = first; i < last; i++) {
+			char[] mine = chunkAt(i);
+			char[] theirs = tape.chunkAt(i);
+			if(mine != theirs && !Arrays.equals(mine, theirs))
+				return false;
+		}
+		return true;
+	}
+
+	private char[] chunkAt(int chunk) {
+		int index = chunk - first_chunk;
+		if(index < 0 || index >= chunks.length || chunks[index] == null)
+			return BLANK_CHUNK;
+		return chunks[index];
+	}
+
+	private static char[] blankChunk() {
+		char[] chunk = new char[CHUNK_SIZE];
+		Arrays.fill(chunk, Transition.emptyCharacter());
+		return chunk;
+	}
+
+	/**
+	 * The random value for a symbol at a position, from the SplitMix64 finaliser. The
+	 * blank symbol is 0 everywhere, so blank cells need not be hashed at all.
+	 **/
+	private static long zobrist(int position, char symbol) {
+		if(symbol == Transition.emptyCharacter())
+			return 0;
+		long z = ((long) position << Character.SIZE | symbol) + 0x9E3779B97F4A7C15L;
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
+}
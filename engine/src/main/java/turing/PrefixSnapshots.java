@@ -0,0 +1,234 @@
+package turing;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+public class PrefixSnapshots {
+
+	private final long max_cells;
+	private final Node root = new Node(null);
+
+	/**
+	 * The nodes that hold a snapshot, least recently used first.
+	 **/
+	private final LinkedHashMap<Node, Node> used = new LinkedHashMap<Node, Node>(16, 0.75f, true);
+
+	private long cells = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long skipped_steps = 0;
+	private long evictions = 0;
+
+	/**
+	 * A node of the trie, one per prefix of the inputs snapshots were taken on. Machine
+	 * alphabets are small, so the children are kept in a short array and searched in
+	 * order.
+	 **/
+	private static final class Node {
+		final Node parent;
+		final int depth;
+		char[] symbols = new char[0];
+		Node[] children = new Node[0];
+		Snapshot snapshot;
+
+		Node(Node parent) {
+			this.parent = parent;
+			this.depth = parent == null ? 0 : parent.depth + 1;
+		}
+
+		Node child(char c) {
+			for(int i = 0; i < symbols.length; i++)
+				if(symbols[i] == c)
+					return children[i];
+			return null;
+		}
+
+		Node addChild(char c) {
+			Node child = new Node(this);
+			symbols = Arrays.copyOf(symbols, symbols.length + 1);
+			children = Arrays.copyOf(children, children.length + 1);
+			symbols[symbols.length - 1] = c;
+			children[children.length - 1] = child;
+			return child;
+		}
+
+		void removeChild(Node child) {
+			for(int i = 0; i < children.length; i++) {
+				if(children[i] == child) {
+					int last = children.length - 1;
+					symbols[i] = symbols[last];
+					children[i] = children[last];
+					symbols = Arrays.copyOf(symbols, last);
+					children = Arrays.copyOf(children, last);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The configuration of a run at the moment its head first read the cell just past
+	 * a prefix of the input, or, if the run halted without ever reading past the
+	 * prefix, its result. Either way it only depends on the prefix, so it holds for
+	 * every input that starts with it.
+	 **/
+	static final class Snapshot {
+		final int state;
+		final int position;
+		final long steps;
+		final int lowest;
+		final char[] cells;
+		final Result result;
+
+		/**
+		 * The cells hold the tape from lowest up to, but not including, the end of the
+		 * prefix, where the head is.
+		 **/
+		Snapshot(int state, int position, long steps, int lowest, char[] cells) {
+			this.state = state;
+			this.position = position;
+			this.steps = steps;
+			this.lowest = lowest;
+			this.cells = cells;
+			this.result = null;
+		}
+
+		Snapshot(Result result, long steps) {
+			this.state = 0;
+			this.position = 0;
+			this.steps = steps;
+			this.lowest = 0;
+			this.cells = new char[0];
+			this.result = result;
+		}
+
+		boolean isFinal() {
+			return result != null;
+		}
+
+		/**
+		 * Whether a run that stops at max_steps would have got this far: a final
+		 * result is only reached if the run was allowed another step after it.
+		 **/
+		boolean within(long max_steps) {
+			return isFinal() ? steps < max_steps : steps <= max_steps;
+		}
+	}
+
+	/**
+	 * A trie of snapshots of interpreted runs, keyed by the prefix of the input each
+	 * one depends on, so that a later input sharing a long prefix with an earlier one
+	 * can resume from where the earlier run first read past it instead of from the
+	 * start. It holds at most max_cells cells of tape and prefix between its snapshots,
+	 * dropping the least recently used first. Snapshots hold state ids, so a trie must
+	 * only be used with one compiled machine.
+	 * All methods are synchronized, so the trie can be shared between threads.
+	 **/
+	public PrefixSnapshots(long max_cells) {
+		this.max_cells = max_cells;
+	}
+
+	/**
+	 * Returns the snapshot for the longest prefix of the input that has one and that a
+	 * run limited to max_steps would have reached, or null if there is none.
+	 **/
+	synchronized Snapshot find(CharSequence input, long max_steps) {
+		Node best = null;
+		Node node = root;
+		for(int i = 0; node != null; i++) {
+			if(node.snapshot != null && node.snapshot.within(max_steps))
+				best = node;
+			node = i < input.length() ? node.child(input.charAt(i)) : null;
+		}
+		if(best == null) {
+			misses++;
+			return null;
+		}
+		used.get(best);
+		hits++;
+		skipped_steps += best.snapshot.steps;
+		return best.snapshot;
+	}
+
+	/**
+	 * The length of the longest prefix the input shares with one a snapshot has been
+	 * taken on.
+	 **/
+	synchronized int sharedLength(CharSequence input) {
+		Node node = root;
+		int length = 0;
+		while(length < input.length() && (node = node.child(input.charAt(length))) != null)
+			length++;
+		return length;
+	}
+
+	/**
+	 * Stores the snapshot for the first length characters of the input, replacing any
+	 * there already, unless it alone is over the size limit.
+	 **/
+	synchronized void put(CharSequence input, int length, Snapshot snapshot) {
+		long size = length + snapshot.cells.length;
+		if(size > max_cells)
+			return;
+		Node node = root;
+		for(int i = 0; i < length; i++) {
+			Node child = node.child(input.charAt(i));
+			node = child == null ? node.addChild(input.charAt(i)) : child;
+		}
+		if(node.snapshot != null)
+			cells -= node.depth + node.snapshot.cells.length;
+		node.snapshot = snapshot;
+		cells += size;
+		used.put(node, node);
+
+		Iterator<Node> eldest = used.keySet().iterator();
+		while(cells > max_cells) {
+			Node evicted = eldest.next();
+			eldest.remove();
+			cells -= evicted.depth + evicted.snapshot.cells.length;
+			evicted.snapshot = null;
+			prune(evicted);
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes the node and any ancestors left with neither a snapshot nor children.
+	 **/
+	private static void prune(Node node) {
+		while(node.parent != null && node.snapshot == null && node.children.length == 0) {
+			node.parent.removeChild(node);
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * The number of runs that resumed from a snapshot or were answered by one, and the
+	 * number that started from the beginning.
+	 **/
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * The steps that runs did not have to take again because they resumed from a
+	 * snapshot.
+	 **/
+	public synchronized long getSkippedSteps() {
+		return skipped_steps;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized int size() {
+		return used.size();
+	}
+
+}
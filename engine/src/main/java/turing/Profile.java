@@ -0,0 +1,201 @@
+package turing;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+public class Profile {
+
+	private final CompiledMachine machine;
+
+	/**
+	 * Indexed by state id, and by transition index as returned by CompiledMachine.find,
+	 * so the step loop only has to increment an array element.
+	 **/
+	final long[] state_visits;
+	final long[] transition_firings;
+
+	private long steps;
+	private int max_position;
+	private long cells_touched;
+
+	/**
+	 * A profile counts how often the machine is in each state, how often each
+	 * transition fires, the furthest right the head gets from the start of the input,
+	 * and how many tape cells the head passes over. A RunContext fills one in for each
+	 * input when profiling is switched on, and profiles can be added together for the
+	 * totals of a batch.
+	 **/
+	public Profile(CompiledMachine machine) {
+		this.machine = machine;
+		state_visits = new long[machine.getStateCount()];
+		transition_firings = new long[machine.getStateCount() * machine.getSymbolCount()];
+	}
+
+	/**
+	 * Zeroes every counter, ready for the next input.
+	 **/
+	public void clear() {
+		Arrays.fill(state_visits, 0);
+		Arrays.fill(transition_firings, 0);
+		steps = 0;
+		max_position = 0;
+		cells_touched = 0;
+	}
+
+	/**
+	 * Records the result of one run: its step count and the lowest and highest
+	 * positions the head reached.
+	 **/
+	void finish(long steps, int lowest, int highest) {
+		this.steps = steps;
+		this.max_position = highest;
+		this.cells_touched = highest - lowest + 1;
+	}
+
+	/**
+	 * Adds another profile of the same machine into this one. Counts and cells touched
+	 * are summed, and the maximum head position is the larger of the two.
+	 **/
+	public void add(Profile other) {
+		for(int i = 0; i < state_visits.length; i++)
+			state_visits[i] += other.state_visits[i];
+		for(int i = 0; i < transition_firings.length; i++)
+			transition_firings[i] += other.transition_firings[i];
+		steps += other.steps;
+		max_position = Math.max(max_position, other.max_position);
+		cells_touched += other.cells_touched;
+	}
+
+	public long getStateVisits(int state) {
+		return state_visits[state];
+	}
+
+	public long getTransitionFirings(int transition) {
+		return transition_firings[transition];
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	public int getMaxPosition() {
+		return max_position;
+	}
+
+	public long getCellsTouched() {
+		return cells_touched;
+	}
+
+	public static void writeCsvHeader(PrintStream out) {
+		out.println("input,kind,state,symbol,count");
+	}
+
+	/**
+	 * Writes one CSV row per state visited and per transition fired, then rows for the
+	 * steps, maximum head position and cells touched, all labelled with the input.
+	 **/
+	public void writeCsv(PrintStream out, String input) {
+		for(int s = 0; s < state_visits.length; s++)
+			if(state_visits[s] != 0)
+				writeCsvRow(out, input, "state", machine.getState(s).getName(), "", state_visits[s]);
+		for(int t = 0; t < transition_firings.length; t++)
+			if(transition_firings[t] != 0)
+				writeCsvRow(out, input, "transition", stateName(t), String.valueOf(symbol(t)), transition_firings[t]);
+		writeCsvRow(out, input, "steps", "", "", steps);
+		writeCsvRow(out, input, "max_position", "", "", max_position);
+		writeCsvRow(out, input, "cells_touched", "", "", cells_touched);
+	}
+
+	/**
+	 * Writes the profile as a single JSON object labelled with the input. States and
+	 * transitions that were never used are left out.
+	 **/
+	public void writeJson(PrintStream out, String input) {
+		out.print("{\"input\":");
+		writeJsonString(out, input);
+		out.print(",\"steps\":");
+		out.print(steps);
+		out.print(",\"max_position\":");
+		out.print(max_position);
+		out.print(",\"cells_touched\":");
+		out.print(cells_touched);
+
+		out.print(",\"states\":{");
+		boolean first = true;
+		for(int s = 0; s < state_visits.length; s++) {
+			if(state_visits[s] == 0)
+				continue;
+			if(!first)
+				out.print(',');
+			first = false;
+			writeJsonString(out, machine.getState(s).getName());
+			out.print(':');
+			out.print(state_visits[s]);
+		}
+
+		out.print("},\"transitions\":[");
+		first = true;
+		for(int t = 0; t < transition_firings.length; t++) {
+			if(transition_firings[t] == 0)
+				continue;
+			if(!first)
+				out.print(',');
+			first = false;
+			out.print("{\"state\":");
+			writeJsonString(out, stateName(t));
+			out.print(",\"symbol\":");
+			writeJsonString(out, String.valueOf(symbol(t)));
+			out.print(",\"count\":");
+			out.print(transition_firings[t]);
+			out.print('}');
+		}
+		out.print("]}");
+	}
+
+	private String stateName(int transition) {
+		return machine.getState(transition / machine.getSymbolCount()).getName();
+	}
+
+	private char symbol(int transition) {
+		return machine.getSymbols()[transition % machine.getSymbolCount()];
+	}
+
+	private static void writeCsvRow(PrintStream out, String input, String kind, String state, String symbol, long count) {
+		writeCsvField(out, input);
+		out.print(',');
+		out.print(kind);
+		out.print(',');
+		writeCsvField(out, state);
+		out.print(',');
+		writeCsvField(out, symbol);
+		out.print(',');
+		out.println(count);
+	}
+
+	private static void writeCsvField(PrintStream out, String field) {
+		if(field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+			out.print(field);
+			return;
+		}
+		out.print('"');
+		out.print(field.replace("\"", "\"\""));
+		out.print('"');
+	}
+
+	private static void writeJsonString(PrintStream out, String value) {
+		out.print('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				out.print('\\');
+				out.print(c);
+			}
+			else if(c < ' ')
+				out.printf("\\u%04x", (int) c);
+			else
+				out.print(c);
+		}
+		out.print('"');
+	}
+
+}
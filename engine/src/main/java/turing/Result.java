@@ -0,0 +1,28 @@
+package turing;
+
+public enum Result {
+
+	ACCEPT("input accepted"),
+	REJECT("input rejected"),
+
+	/**
+	 * The machine had not halted when it ran out of its step budget or its time.
+	 **/
+	UNDECIDED("input undecided (step or time limit reached)"),
+
+	/**
+	 * Cycle detection found the machine in a loop that can never reach a halting state.
+	 **/
+	DOES_NOT_HALT("input does not halt (the machine entered a cycle)");
+
+	private final String message;
+
+	private Result(String message) {
+		this.message = message;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+}
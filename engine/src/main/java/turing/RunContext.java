@@ -0,0 +1,516 @@
+package turing;
+
+import java.io.PrintStream;
+
+public class RunContext extends Evaluator {
+
+	/**
+	 * The width of the console in characters, beyond which the -I output of the tape
+	 * is cut short.
+	 **/
+	public static final int SCREEN_SIZE = 77;
+
+	/**
+	 * The base of the rolling tape hash used by cycle detection, and its inverse modulo
+	 * 2^64, by which the weight of the head's cell is multiplied as it moves right and
+	 * left.
+	 **/
+	private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+	private static final long HASH_BASE_INVERSE = inverse(HASH_BASE);
+
+	private final Tape tape = new Tape();
+	private int position = 0;
+	private int current_state;
+	private char current_input;
+	private Profile profile;
+	private TraceWriter trace;
+	private boolean detecting_cycles = false;
+	private PrefixSnapshots snapshots;
+	private Checkpoints checkpoints;
+	private long next_checkpoint;
+	private final StringBuilder line = new StringBuilder();
+
+	/**
+	 * A run context is the plain interpreter: it holds the tape, the head position and
+	 * the current state, and takes the machine one transition at a time.
+	 **/
+	public RunContext(CompiledMachine machine) {
+		this(machine, System.out);
+	}
+
+	/**
+	 * As above, but the -I and -P output is written to the given stream instead of
+	 * the console.
+	 **/
+	public RunContext(CompiledMachine machine, PrintStream out) {
+		super(machine, out);
+	}
+
+	/**
+	 * Switches profiling on with a fresh profile, or off. While it is on, each run
+	 * fills in the profile for its input instead of taking the unprofiled step loop.
+	 **/
+	public void setProfiling(boolean profiling) {
+		profile = profiling ? new Profile(machine) : null;
+	}
+
+	/**
+	 * Records every transition of every run to the trace from now on, or stops
+	 * recording if it is null.
+	 **/
+	public void setTrace(TraceWriter trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * Switches cycle detection on or off. While it is on, and the run is not being
+	 * profiled, an input the machine can be shown never to halt on is given up on as
+	 * soon as that is found, as DOES_NOT_HALT.
+	 **/
+	public void setCycleDetection(boolean detecting_cycles) {
+		this.detecting_cycles = detecting_cycles;
+	}
+
+	/**
+	 * Sets the trie of prefix snapshots that runs resume from and add to, or null for
+	 * none. Runs that are profiled, traced, watched for cycles or printed with -I always
+	 * start from the beginning.
+	 **/
+	public void setPrefixSnapshots(PrefixSnapshots snapshots) {
+		this.snapshots = snapshots;
+	}
+
+	/**
+	 * Sets the checkpoints that runs resume from and are checkpointed into, or null for
+	 * none. Runs that are profiled or watched for cycles are not checkpointed, and runs
+	 * that are traced or printed with -I always start from the beginning.
+	 **/
+	public void setCheckpoints(Checkpoints checkpoints) {
+		this.checkpoints = checkpoints;
+	}
+
+	@Override
+	public Profile getProfile() {
+		return profile;
+	}
+
+	@Override
+	public int getTapeCells() {
+		return tape.getCapacity();
+	}
+
+	@Override
+	public int getCellsUsed() {
+		return tape.span(position);
+	}
+
+	/**
+	 * Writes the input onto the tape and sets the position and state to start evaluating.
+	 * The tape storage is reused between calls.
+	 **/
+	@Override
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		tape.load(input);
+		position = 0;
+		current_state = machine.getStartState();
+		current_input = tape.read(position);
+		startClock();
+		if(trace == null)
+			return evaluate(input, i_mode, p_mode);
+
+		trace.beginRun(input);
+		try {
+			Result result = evaluate(input, i_mode, p_mode);
+			trace.endRun(result, current_state);
+			return result;
+		}
+		catch(InputException e) {
+			trace.endRun(null, current_state);
+			throw e;
+		}
+	}
+
+	private Result evaluate(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		if(profile != null)
+			return profile(input, i_mode, p_mode);
+		if(detecting_cycles)
+			return detect(input, i_mode, p_mode);
+		if(checkpoints != null)
+			return checkpoint(input, i_mode, p_mode);
+		if(snapshots != null && !i_mode && trace == null)
+			return resume(input, p_mode);
+		return accept(input, i_mode, p_mode);
+	}
+
+	/**
+	 * Runs accept from the input's latest checkpoint, if it has one the step limit allows,
+	 * with the same step count the run had reached there, and takes a checkpoint every
+	 * interval steps from then on. Once the run is decided its checkpoint is dropped.
+	 **/
+	private Result checkpoint(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		Checkpoints.Checkpoint checkpoint = i_mode || trace != null ? null : checkpoints.find(input, getMaxSteps());
+		if(checkpoint != null) {
+			tape.load(checkpoint.lowest, checkpoint.cells);
+			position = checkpoint.position;
+			current_state = checkpoint.state;
+			current_input = tape.read(position);
+			number_of_steps = checkpoint.steps;
+			next_check = number_of_steps;
+		}
+		next_checkpoint = number_of_steps + checkpoints.getInterval();
+
+		Result result = accept(input, i_mode, p_mode);
+		if(result != Result.UNDECIDED)
+			checkpoints.decided(input);
+		return result;
+	}
+
+	/**
+	 * Checks the limits as limitReached does, and if checkpointing, takes a checkpoint
+	 * when one is due and brings next_check forward to the next, so that the step loop
+	 * still pays only its single comparison per step.
+	 **/
+	private boolean checkLimits(CharSequence input) {
+		if(limitReached())
+			return true;
+		if(checkpoints != null) {
+			if(number_of_steps >= next_checkpoint) {
+				checkpoints.take(input, current_state, position, number_of_steps, tape);
+				next_checkpoint = number_of_steps + checkpoints.getInterval();
+			}
+			next_check = Math.min(next_check, next_checkpoint);
+		}
+		return false;
+	}
+
+	/**
+	 * From its starting state and position, the machine evaluates the input by examining
+	 * its current state and the initial input, transitions into the resulting state,
+	 * writes the corresponding output, and shifts left or right along the tape
+	 * depending on the transition function.
+	 *
+	 * If it encounters either the accept or reject state, it simply breaks the loop
+	 * and returns ACCEPT or REJECT accordingly. If it runs out of steps or time first,
+	 * it returns UNDECIDED.
+	 *
+	 * When the machine is sweeping, in a state that just moves over the symbol it is on,
+	 * the head is moved straight past every cell ahead that the state would move over
+	 * too, and each of them is counted as a step, unless each transition is being
+	 * printed or traced.
+	 *
+	 * If checkpointing, the configuration is checkpointed every so many steps, where the
+	 * limits are checked.
+	 *
+	 * Optionally, it prints the new transition in each iteration if the -I flag was set,
+	 * and records it if a trace is being written.
+	 * Optionally, it prints the number of steps taken at the end if the -P flag was set.
+	 *
+	 * Throws an InputException if the input line is malformed.
+	 **/
+	private Result accept(CharSequence original_input, boolean i_mode, boolean p_mode) throws InputException {
+		boolean observed = i_mode || trace != null;
+		while(machine.isDefault(current_state)) {
+			if(number_of_steps == next_check && checkLimits(original_input))
+				break;
+			int t = machine.find(current_state, current_input);
+
+			// never skip past the next step the limits are checked at
+			int direction = observed ? 0 : machine.getSweepMove(t);
+			if(direction != 0) {
+				char[] symbols = machine.getSweepCharacters(current_state, direction);
+				int skipped = tape.scan(position, symbols, direction, (int) Math.min(next_check - number_of_steps, Integer.MAX_VALUE));
+				if(skipped > 0) {
+					position += direction * skipped;
+					current_input = tape.read(position);
+					number_of_steps += skipped;
+					continue;
+				}
+			}
+
+			current_state = machine.getNextState(t);
+			if(!machine.isDefault(current_state))
+				break;
+			tape.write(position, machine.getOutput(t));
+
+			position += machine.getMove(t);
+
+			current_input = tape.read(position);
+
+			if(observed)
+				observe(t, i_mode);
+			number_of_steps++;
+		}
+
+		if(p_mode)
+			printSteps(original_input);
+
+		return resultFor(current_state);
+	}
+
+	/**
+	 * The same loop as accept, but also counting each state the machine is in, each
+	 * transition that fires, and the range of positions the head covers. It is kept
+	 * apart from accept so that the unprofiled loop does no extra work.
+	 **/
+	private Result profile(CharSequence original_input, boolean i_mode, boolean p_mode) throws InputException {
+		profile.clear();
+		long[] visits = profile.state_visits;
+		long[] firings = profile.transition_firings;
+		int lowest = 0;
+		int highest = 0;
+		boolean observed = i_mode || trace != null;
+
+		while(machine.isDefault(current_state)) {
+			visits[current_state]++;
+			if(number_of_steps == next_check && limitReached())
+				break;
+			int t = machine.find(current_state, current_input);
+			firings[t]++;
+			current_state = machine.getNextState(t);
+			if(!machine.isDefault(current_state))
+				break;
+			tape.write(position, machine.getOutput(t));
+
+			position += machine.getMove(t);
+			if(position > highest)
+				highest = position;
+			else if(position < lowest)
+				lowest = position;
+
+			current_input = tape.read(position);
+
+			if(observed)
+				observe(t, i_mode);
+			number_of_steps++;
+		}
+		if(!machine.isDefault(current_state))
+			visits[current_state]++;
+		profile.finish(number_of_steps, lowest, highest);
+
+		if(p_mode)
+			printSteps(original_input);
+
+		return resultFor(current_state);
+	}
+
+	/**
+	 * The same loop as accept, but starting from the snapshot of the longest prefix of
+	 * the input that has one. Until the head first reads the cell past a prefix, the run
+	 * cannot have depended on anything after it, so any input with that prefix gets to
+	 * the same configuration in the same number of steps. A final snapshot answers the
+	 * input outright, since the run halted before reading past its prefix.
+	 *
+	 * Along the way, the configuration is snapshotted when the head first reads past the
+	 * prefix the input shares with earlier snapshots, and past all but its last
+	 * character, where inputs that are extended one character at a time part ways. If
+	 * the machine halts before reading the whole input, the result is kept for the part
+	 * it did read.
+	 **/
+	private Result resume(CharSequence original_input, boolean p_mode) throws InputException {
+		int length = original_input.length();
+		int shared = snapshots.sharedLength(original_input);
+		PrefixSnapshots.Snapshot snapshot = snapshots.find(original_input, getMaxSteps());
+		if(snapshot != null && snapshot.isFinal()) {
+			number_of_steps = snapshot.steps;
+			if(p_mode)
+				printSteps(original_input);
+			return snapshot.result;
+		}
+		if(snapshot != null) {
+			tape.write(snapshot.lowest, snapshot.cells);
+			position = snapshot.position;
+			current_state = snapshot.state;
+			current_input = tape.read(position);
+			number_of_steps = snapshot.steps;
+			next_check = number_of_steps;
+		}
+
+		// the furthest cell read so far, and the next two cells to snapshot at
+		int reach = position;
+		int target = Math.min(shared, length - 1);
+		int later = Math.max(shared, length - 1);
+		if(target <= reach) {
+			target = later;
+			later = reach;
+		}
+
+		while(machine.isDefault(current_state)) {
+			if(number_of_steps == next_check && limitReached())
+				break;
+			int t = machine.find(current_state, current_input);
+			current_state = machine.getNextState(t);
+			if(!machine.isDefault(current_state))
+				break;
+			tape.write(position, machine.getOutput(t));
+
+			position += machine.getMove(t);
+
+			current_input = tape.read(position);
+			number_of_steps++;
+
+			if(position > reach) {
+				reach = position;
+				if(reach == target) {
+					char[] cells = tape.read(tape.getLowest(), position);
+					snapshots.put(original_input, position,
+							new PrefixSnapshots.Snapshot(current_state, position, number_of_steps, tape.getLowest(), cells));
+					target = later;
+				}
+			}
+		}
+
+		Result result = resultFor(current_state);
+		if(result != Result.UNDECIDED && reach < length)
+			snapshots.put(original_input, reach + 1, new PrefixSnapshots.Snapshot(result, number_of_steps));
+
+		if(p_mode)
+			printSteps(original_input);
+
+		return result;
+	}
+
+	/**
+	 * The same loop as accept, but watching for a cycle with Brent's method: the
+	 * configuration is saved after 1, 2, 4, 8... steps, and each step is compared with
+	 * the last one saved. Configurations are compared by state, head position and a
+	 * rolling hash of the tape, the sum of each cell's symbol times HASH_BASE to the
+	 * power of its position, which each write updates in constant time. On a match,
+	 * the tape is copied and the machine run on for the length of the cycle, and only
+	 * if it comes back to exactly the same configuration is it given up on.
+	 *
+	 * A machine can also loop forever without repeating a configuration, by moving
+	 * off into the blank tape past either end. That is caught when the machine is back
+	 * in the saved state further along, having started past the end of the used tape
+	 * and never moved back behind where it started: it has only ever read blanks, and
+	 * has only blanks ahead of it again, so it will do the same thing forever.
+	 **/
+	private Result detect(CharSequence original_input, boolean i_mode, boolean p_mode) throws InputException {
+		boolean observed = i_mode || trace != null;
+		char blank = Transition.emptyCharacter();
+		long hash = 0;
+		long weight = 1;
+		for(int i = 0; i < original_input.length(); i++) {
+			hash += (original_input.charAt(i) - blank) * weight;
+			weight *= HASH_BASE;
+		}
+		weight = 1;
+
+		int saved_state = current_state;
+		int saved_position = position;
+		long saved_hash = hash;
+		boolean saved_past_right = position >= tape.getHighest();
+		boolean saved_past_left = position < tape.getLowest();
+		int lowest_since = position;
+		int highest_since = position;
+		long power = 1;
+		long since = 0;
+
+		Tape candidate = null;
+		int candidate_state = 0;
+		int candidate_position = 0;
+		long verify_at = 0;
+		boolean looping = false;
+
+		while(machine.isDefault(current_state)) {
+			if(number_of_steps == next_check && limitReached())
+				break;
+			int t = machine.find(current_state, current_input);
+			current_state = machine.getNextState(t);
+			if(!machine.isDefault(current_state))
+				break;
+			char output = machine.getOutput(t);
+			hash += (output - current_input) * weight;
+			tape.write(position, output);
+
+			int move = machine.getMove(t);
+			position += move;
+			weight *= move > 0 ? HASH_BASE : HASH_BASE_INVERSE;
+			if(position < lowest_since)
+				lowest_since = position;
+			else if(position > highest_since)
+				highest_since = position;
+
+			current_input = tape.read(position);
+
+			if(observed)
+				observe(t, i_mode);
+			number_of_steps++;
+			since++;
+
+			if(candidate != null && number_of_steps == verify_at) {
+				if(current_state == candidate_state && position == candidate_position && tape.sameSymbols(candidate)) {
+					looping = true;
+					break;
+				}
+				candidate = null;
+			}
+			if(current_state == saved_state) {
+				if(position == saved_position && hash == saved_hash && candidate == null) {
+					candidate = tape.copy();
+					candidate_state = current_state;
+					candidate_position = position;
+					verify_at = number_of_steps + since;
+				}
+				else if(saved_past_right && position > saved_position && lowest_since >= saved_position
+						&& position >= tape.getHighest()) {
+					looping = true;
+					break;
+				}
+				else if(saved_past_left && position < saved_position && highest_since <= saved_position
+						&& position < tape.getLowest()) {
+					looping = true;
+					break;
+				}
+			}
+			if(since == power) {
+				saved_state = current_state;
+				saved_position = position;
+				saved_hash = hash;
+				saved_past_right = position >= tape.getHighest();
+				saved_past_left = position < tape.getLowest();
+				lowest_since = position;
+				highest_since = position;
+				power <<= 1;
+				since = 0;
+			}
+		}
+
+		if(p_mode)
+			printSteps(original_input);
+
+		return looping ? Result.DOES_NOT_HALT : resultFor(current_state);
+	}
+
+	/**
+	 * The inverse of an odd number modulo 2^64, by Newton's method: each round doubles
+	 * the number of correct low bits, starting from the 3 that x itself gets right.
+	 **/
+	private static long inverse(long x) {
+		long inverse = x;
+		for(int i = 0; i < 5; i++)
+			inverse *= 2 - x * inverse;
+		return inverse;
+	}
+
+	private void observe(int t, boolean i_mode) {
+		if(trace != null)
+			trace.step(t);
+		if(i_mode)
+			printTransition(machine.getTransition(t));
+	}
+
+	/**
+	 * This is a nicely formatted printing of the transition if the -I flag was set: the
+	 * used part of the tape, cut short at the width of the screen, then the transition.
+	 * Each line is built up before it is written, rather than one character at a time.
+	 * The throttled animation of earlier versions is now an option of the trace viewer.
+	 **/
+	private void printTransition(Transition t) {
+		line.setLength(0);
+		if(tape.appendTo(line, SCREEN_SIZE))
+			line.append("...");
+		out.println(line);
+		out.println(t.print());
+	}
+
+}
@@ -0,0 +1,242 @@
+package turing;
+
+import java.util.Arrays;
+
+public class Tape {
+
+	/**
+	 * The tape grows by whole chunks at a time, and at least doubles each time, so that
+	 * a machine walking off either end of the input copies each cell a constant number
+	 * of times on average rather than once per chunk it walks over.
+	 **/
+	private static final int CHUNK_SIZE = 1024;
+
+	private char[] cells;
+
+	/**
+	 * The index into cells of tape position 0, i.e. the first character of the input.
+	 * Positions to the left of the input are negative.
+	 **/
+	private int origin;
+
+	/**
+	 * The leftmost and one-past-rightmost positions that hold either input or a
+	 * written symbol. Everything outside this range is blank.
+	 **/
+	private int lowest;
+	private int highest;
+
+	public Tape() {
+		cells = new char[CHUNK_SIZE];
+		origin = 0;
+	}
+
+	public Tape(CharSequence input) {
+		this();
+		load(input);
+	}
+
+	/**
+	 * Clears the tape and writes the input onto it starting at position 0, reusing the
+	 * existing storage where it is large enough. Position 0 stays where it was if the
+	 * input still fits after it, so that the room a machine made to the left of its input
+	 * is kept for the next one rather than grown again.
+	 **/
+	public void load(CharSequence input) {
+		int length = input.length();
+		if(length > cells.length)
+			cells = new char[roundUp(length)];
+		origin = Math.max(0, Math.min(origin, cells.length - length));
+		for(int i = 0; i < length; i++)
+			cells[origin + i] = input.charAt(i);
+		lowest = 0;
+		highest = length;
+	}
+
+	/**
+	 * Clears the tape and writes the symbols onto it starting at position lowest, which
+	 * must be 0 or less, as the used part of a tape that getLowest and read returned.
+	 **/
+	public void load(int lowest, char[] symbols) {
+		if(symbols.length > cells.length)
+			cells = new char[roundUp(symbols.length)];
+		origin = -lowest;
+		System.arraycopy(symbols, 0, cells, 0, symbols.length);
+		this.lowest = lowest;
+		this.highest = lowest + symbols.length;
+	}
+
+	/**
+	 * Returns the symbol at the given position, or the empty character if nothing has
+	 * ever been written there.
+	 **/
+	public char read(int position) {
+		if(position < lowest || position >= highest)
+			return Transition.emptyCharacter();
+		return cells[origin + position];
+	}
+
+	public void write(int position, char symbol) {
+		if(position < lowest || position >= highest)
+			extendTo(position);
+		cells[origin + position] = symbol;
+	}
+
+	public int getLowest() {
+		return lowest;
+	}
+
+	public int getHighest() {
+		return highest;
+	}
+
+	/**
+	 * The number of cells from the leftmost to the rightmost that hold input or have
+	 * been written, taking in the given head position as well.
+	 **/
+	public int span(int position) {
+		return Math.max(highest, position + 1) - Math.min(lowest, position);
+	}
+
+	/**
+	 * Appends the used part of the tape, but no more than limit cells of it, and
+	 * returns true if it had to be cut short.
+	 **/
+	public boolean appendTo(StringBuilder line, int limit) {
+		for(int i = lowest; i < highest && i - lowest < limit; i++)
+			line.append(cells[origin + i]);
+		return highest - lowest >= limit;
+	}
+
+	/**
+	 * Returns a new tape holding a copy of the used part of this one.
+	 **/
+	public Tape copy() {
+		Tape copy = new Tape();
+		int length = highest - lowest;
+		if(length > copy.cells.length)
+			copy.cells = new char[roundUp(length)];
+		System.arraycopy(cells, origin + lowest, copy.cells, 0, length);
+		copy.origin = -lowest;
+		copy.lowest = lowest;
+		copy.highest = highest;
+		return copy;
+	}
+
+	/**
+	 * Counts the cells from position onwards, moving in the given direction, that hold
+	 * any of the symbols, stopping at the first that does not, after limit cells, or at
+	 * the end of the used part of the tape.
+	 **/
+	public int scan(int position, char[] symbols, int direction, int limit) {
+		if(position < lowest || position >= highest)
+			return 0;
+		int available = direction > 0 ? highest - position : position - lowest + 1;
+		int end = Math.min(available, limit);
+		int index = origin + position;
+		int count = 0;
+		if(symbols.length == 1) {
+			char symbol = symbols[0];
+			while(count < end && cells[index] == symbol) {
+				index += direction;
+				count++;
+			}
+			return count;
+		}
+		while(count < end && contains(symbols, cells[index])) {
+			index += direction;
+			count++;
+		}
+		return count;
+	}
+
+	private static boolean contains(char[] symbols, char c) {
+		for(char symbol : symbols)
+			if(symbol == c)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the symbols from position from up to, but not including, position to.
+	 **/
+	public char[] read(int from, int to) {
+		if(from >= lowest && to <= highest)
+			return Arrays.copyOfRange(cells, origin + from, origin + to);
+		char[] symbols = new char[to - from];
+		for(int i = from; i < to; i++)
+			symbols[i - from] = read(i);
+		return symbols;
+	}
+
+	/**
+	 * Writes the symbols onto the tape starting at position from.
+	 **/
+	public void write(int from, char[] symbols) {
+		for(int i = 0; i < symbols.length; i++)
+			write(from + i, symbols[i]);
+	}
+
+	/**
+	 * Whether the two tapes hold the same symbol at every position, counting cells
+	 * outside the used part of either as blank.
+	 **/
+	public boolean sameSymbols(Tape other) {
+		int from = Math.min(lowest, other.lowest);
+		int to = Math.max(highest, other.highest);
+		for(int i = from; i < to; i++)
+			if(read(i) != other.read(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * The number of cells of storage the tape has grown to.
+	 **/
+	public int getCapacity() {
+		return cells.length;
+	}
+
+	/**
+	 * Widens the used range to include the given position, blanking any cells in
+	 * between and growing the backing array in whichever direction is needed.
+	 **/
+	private void extendTo(int position) {
+		int index = origin + position;
+		if(index < 0) {
+			int extra = Math.max(roundUp(-index), headroom());
+			char[] grown = new char[cells.length + extra];
+			System.arraycopy(cells, 0, grown, extra, cells.length);
+			cells = grown;
+			origin += extra;
+		}
+		else if(index >= cells.length) {
+			char[] grown = new char[Math.max(roundUp(index + 1), cells.length + headroom())];
+			System.arraycopy(cells, 0, grown, 0, cells.length);
+			cells = grown;
+		}
+
+		char empty = Transition.emptyCharacter();
+		for(int i = position; i < lowest; i++)
+			cells[origin + i] = empty;
+		for(int i = highest; i < position; i++)
+			cells[origin + i] = empty;
+		if(position < lowest)
+			lowest = position;
+		if(position >= highest)
+			highest = position + 1;
+	}
+
+	/**
+	 * How much more storage to grow by than is needed: as much as there is already, up
+	 * to the largest array that can be allocated.
+	 **/
+	private int headroom() {
+		return Math.min(cells.length, Integer.MAX_VALUE - 8 - cells.length);
+	}
+
+	private static int roundUp(int size) {
+		return (size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+	}
+
+}
@@ -0,0 +1,108 @@
+package turing;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads back a trace written by TraceWriter, one run at a time and one transition at a
+ * time within each run.
+ **/
+public class TraceReader implements Closeable {
+
+	/**
+	 * Returned by nextStep once a run's transitions are used up.
+	 **/
+	public static final int END_OF_RUN = -1;
+
+	private final InputStream in;
+	private final int state_count;
+	private final int symbol_count;
+
+	private Result result;
+	private int final_state;
+
+	/**
+	 * Reads the trace's header, throwing an InputException if the stream is not a
+	 * trace or was written for a different machine. Transition indices only mean
+	 * anything to the machine they were recorded on, so the content hash has to match,
+	 * not just the number of states and symbols.
+	 **/
+	public TraceReader(InputStream in, CompiledMachine machine) throws IOException, InputException {
+		this.in = new BufferedInputStream(in, 1 << 16);
+		if(readVarint() != TraceWriter.MAGIC)
+			throw new InputException("Error: not a trace file");
+		state_count = (int) readVarint();
+		symbol_count = (int) readVarint();
+		long hash = readVarint();
+		if(state_count != machine.getStateCount() || symbol_count != machine.getSymbolCount()
+				|| hash != machine.getContentHash())
+			throw new InputException("Error: the trace was not written for this machine");
+	}
+
+	/**
+	 * Returns the input of the next run, or null at the end of the trace.
+	 **/
+	public String nextRun() throws IOException {
+		int first = in.read();
+		if(first < 0)
+			return null;
+		int length = (int) readVarint(first);
+		StringBuilder input = new StringBuilder(length);
+		for(int i = 0; i < length; i++)
+			input.append((char) readVarint());
+		return input.toString();
+	}
+
+	/**
+	 * Returns the index of the next transition of the current run, or END_OF_RUN, after
+	 * which getResult and getFinalState describe how the run ended.
+	 **/
+	public int nextStep() throws IOException {
+		long value = readVarint();
+		if(value != 0)
+			return (int) (value - 1);
+		int code = (int) readVarint();
+		result = TraceWriter.result(code);
+		final_state = (int) readVarint();
+		return END_OF_RUN;
+	}
+
+	/**
+	 * The result of the run just finished, or null if it raised an InputException.
+	 **/
+	public Result getResult() {
+		return result;
+	}
+
+	public int getFinalState() {
+		return final_state;
+	}
+
+	private long readVarint() throws IOException {
+		return readVarint(in.read());
+	}
+
+	private long readVarint(int first) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b = first;
+		while(true) {
+			if(b < 0)
+				throw new EOFException("Error: the trace ends part way through a run");
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+			shift += 7;
+			b = in.read();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,192 @@
+package turing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records every transition a RunContext takes in a compact binary trace, which
+ * TraceReader reads back. The machine thread only encodes transitions into an
+ * in-memory chunk; full chunks are handed to a dedicated writer thread, which writes
+ * them out in one call each. A fixed ring of chunks circulates between the two threads,
+ * so the machine thread never waits on the file or pipe unless the writer falls a
+ * whole ring behind.
+ *
+ * The trace is a header followed by one record per input, every number a varint:
+ *
+ *   header: "TMT" 2, state count, symbol count, machine content hash
+ *   record: input length, input characters, (transition index + 1)*, 0,
+ *           result (0 accept, 1 reject, 2 undecided, 3 error, 4 does not halt),
+ *           final state
+ *
+ * Transition indices are those of the CompiledMachine, so replaying a record against
+ * the same machine recreates every tape, head position and state of the run.
+ **/
+public class TraceWriter implements Closeable {
+
+	static final int MAGIC = 0x544D5402;
+	static final int ERROR = 3;
+	static final int DOES_NOT_HALT = 4;
+
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final int RING_SIZE = 16;
+
+	/**
+	 * The most bytes one varint can take, so a chunk with this much room left can
+	 * take the next number without checking again.
+	 **/
+	private static final int MAX_VARINT = 10;
+
+	private final OutputStream out;
+	private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<Chunk>(RING_SIZE);
+	private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<Chunk>(RING_SIZE);
+	private final Thread writer;
+
+	private Chunk chunk;
+	private volatile IOException failure;
+
+	/**
+	 * An empty chunk queued after the last real one tells the writer thread to stop.
+	 **/
+	private static final Chunk END = new Chunk(0);
+
+	private static final class Chunk {
+		final byte[] bytes;
+		int size;
+
+		Chunk(int capacity) {
+			bytes = new byte[capacity];
+		}
+	}
+
+	public TraceWriter(OutputStream out, CompiledMachine machine) {
+		this.out = out;
+		for(int i = 0; i < RING_SIZE - 1; i++)
+			free.add(new Chunk(CHUNK_SIZE));
+		chunk = new Chunk(CHUNK_SIZE);
+
+		writeVarint(MAGIC);
+		writeVarint(machine.getStateCount());
+		writeVarint(machine.getSymbolCount());
+		writeVarint(machine.getContentHash());
+
+		writer = new Thread(this::drain, "trace-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Starts the record of a run on the given input.
+	 **/
+	public void beginRun(CharSequence input) {
+		writeVarint(input.length());
+		for(int i = 0; i < input.length(); i++)
+			writeVarint(input.charAt(i));
+	}
+
+	/**
+	 * Records a transition taken, by its index in the compiled machine.
+	 **/
+	public void step(int transition) {
+		writeVarint(transition + 1);
+	}
+
+	/**
+	 * Ends the record of a run with its result, or null if it raised an InputException,
+	 * and the state it stopped in.
+	 **/
+	public void endRun(Result result, int state) {
+		writeVarint(0);
+		writeVarint(code(result));
+		writeVarint(state);
+	}
+
+	/**
+	 * The code a result is recorded as. The first three are the results' ordinals, as
+	 * they were before DOES_NOT_HALT was added.
+	 **/
+	static int code(Result result) {
+		if(result == null)
+			return ERROR;
+		return result == Result.DOES_NOT_HALT ? DOES_NOT_HALT : result.ordinal();
+	}
+
+	static Result result(int code) {
+		if(code == ERROR)
+			return null;
+		return code == DOES_NOT_HALT ? Result.DOES_NOT_HALT : Result.values()[code];
+	}
+
+	private void writeVarint(long value) {
+		if(chunk.size > CHUNK_SIZE - MAX_VARINT)
+			handOff();
+		byte[] bytes = chunk.bytes;
+		int i = chunk.size;
+		while((value & ~0x7FL) != 0) {
+			bytes[i++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		bytes[i++] = (byte) value;
+		chunk.size = i;
+	}
+
+	/**
+	 * Passes the current chunk to the writer thread and takes an empty one from the
+	 * ring, waiting only if every chunk is still queued for writing.
+	 **/
+	private void handOff() {
+		try {
+			full.put(chunk);
+			chunk = free.take();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Error: interrupted while writing the trace", e);
+		}
+		chunk.size = 0;
+	}
+
+	private void drain() {
+		try {
+			while(true) {
+				Chunk next = full.take();
+				if(next == END)
+					break;
+				if(failure == null) {
+					try {
+						out.write(next.bytes, 0, next.size);
+					}
+					catch(IOException e) {
+						failure = e;
+					}
+				}
+				free.put(next);
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes out everything recorded so far, stops the writer thread and closes the
+	 * stream. Throws the first IOException the writer thread met, if any.
+	 **/
+	@Override
+	public void close() throws IOException {
+		try {
+			full.put(chunk);
+			full.put(END);
+			writer.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		out.close();
+		if(failure != null)
+			throw failure;
+	}
+
+}
@@ -0,0 +1,88 @@
+package turing;
+
+public class Transition {
+
+	private State state1;
+	private char[] inputs;
+	private State state2;
+	private char[] outputs;
+	private Move[] moves;
+
+	//Empty character is stored internally
+	private static final char emptyCharacter = '_';
+	public static final String LEFT = "L";
+	public static final String RIGHT = "R";
+	public static final String STAY = "S";
+
+	public Transition(State state1, char tape_input, State state2, char tape_output, Move move) {
+		this(state1, new char[] {tape_input}, state2, new char[] {tape_output}, new Move[] {move});
+	}
+
+	/**
+	 * A transition of a machine with several tapes, which reads, writes and moves on
+	 * every tape at once. The arrays hold one entry per tape, in the same order.
+	 **/
+	public Transition(State state1, char[] tape_inputs, State state2, char[] tape_outputs, Move[] moves) {
+		this.state1 = state1;
+		this.inputs = tape_inputs;
+		this.state2 = state2;
+		this.outputs = tape_outputs;
+		this.moves = moves;
+	}
+
+	public State getInitialState() {
+		return state1;
+	}
+
+	public char getTapeInput() {
+		return inputs[0];
+	}
+
+	public char getTapeInput(int tape) {
+		return inputs[tape];
+	}
+
+	public State getResultState() {
+		return state2;
+	}
+
+	public char getTapeOutput() {
+		return outputs[0];
+	}
+
+	public char getTapeOutput(int tape) {
+		return outputs[tape];
+	}
+
+	public String getMoveDirection() {
+		return moves[0].getDirection();
+	}
+
+	public String getMoveDirection(int tape) {
+		return moves[tape].getDirection();
+	}
+
+	public int getTapeCount() {
+		return inputs.length;
+	}
+
+	/**
+	 * This is called when runtm.printMachineDescription(TuringMachine machine) is called.
+	 **/
+	public String print() {
+		String print = "";
+		print += "<" + state1.getName() + "> ";
+		for(char input : inputs)
+			print += "<" + input + "> ";
+		print += "<" + state2.getName() + "> ";
+		for(char output : outputs)
+			print += "<" + output + "> ";
+		for(int i = 0; i < moves.length; i++)
+			print += (i > 0 ? " <" : "<") + moves[i].getDirection() + ">";
+		return print;
+	}
+
+	public static char emptyCharacter() {
+		return emptyCharacter;
+	}
+}
@@ -0,0 +1,641 @@
+package turing;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+
+public class TuringMachine {
+
+	/**
+	 * These are constants to do with the format of the machine description. 
+	 **/
+	private static final int N_LINE_SIZE = 2;
+	private static final int MAX_STATE_SIZE = 2;
+	private static final int NORMAL_STATE_SIZE = 1;
+	private final int TRANSITION_LENGTH = 5;
+	private static final int TAPES_LINE_SIZE = 2;
+	private static final String TAPES_KEYWORD = "tapes";
+
+	/**
+	 * The most entries the transition table of a machine with several tapes may have,
+	 * one for each state and combination of symbols under the heads.
+	 **/
+	private static final long MAX_TABLE_SIZE = 1 << 26;
+
+	private int n = 0;
+	private State[] states;
+	private char[] alphabet;
+	private int tapes = 1;
+
+	private ArrayList<Transition> transition_table;
+	private CompiledMachine compiled;
+
+	/**
+	 * Indexes used only while parsing, so that each state name, state status, alphabet
+	 * symbol and (state, input) pair is checked in constant time rather than by a scan
+	 * of everything read so far.
+	 **/
+	private HashMap<String, Integer> state_ids;
+	private HashSet<String> statuses;
+	private BitSet symbols;
+	private HashSet<Long> transition_keys;
+	private int[] tape_symbol_ids;
+
+	/**
+	 * Set by GraalVM in a native image, where the JIT cannot be used.
+	 **/
+	private static final boolean NATIVE_IMAGE = System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+
+	private Engine engine = Engine.INTERPRETER;
+	private JitProgram program;
+	private boolean jit_unavailable = false;
+	private long max_steps = Long.MAX_VALUE;
+	private long timeout = 0;
+	private boolean profiling = false;
+	private boolean detecting_cycles = false;
+	private TraceWriter trace;
+	private Metrics metrics;
+	private DecisionCache cache;
+	private PrefixSnapshots snapshots;
+	private Checkpoints checkpoints;
+	private boolean nondeterministic = false;
+	private long configuration_budget = Long.MAX_VALUE;
+	private int branch_threads = 1;
+	private ForkJoinPool branch_pool;
+
+	public State[] getStates() {
+		return states;
+	}
+
+	public char[] getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * The transitions in the order they were declared, or for a machine loaded from a
+	 * compiled file, in order of state and symbol.
+	 **/
+	public ArrayList<Transition> getTransitionTable() {
+		if(transition_table == null && compiled != null) {
+			transition_table = new ArrayList<Transition>();
+			for(int i = 0; i < compiled.getStateCount() * compiled.getKeyCount(); i++)
+				if(compiled.getNextState(i) != CompiledMachine.NO_TRANSITION)
+					transition_table.add(compiled.getTransition(i));
+		}
+		return transition_table;
+	}
+
+	public CompiledMachine getCompiledMachine() {
+		return compiled;
+	}
+
+	/**
+	 * Sets which engine evaluates inputs in every run context created from now on.
+	 **/
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * Sets the step budget given to every run context created from now on.
+	 **/
+	public void setMaxSteps(long max_steps) {
+		this.max_steps = max_steps;
+	}
+
+	/**
+	 * Sets the per-input timeout in milliseconds given to every run context created
+	 * from now on, or 0 for no limit.
+	 **/
+	public void setTimeout(long milliseconds) {
+		this.timeout = milliseconds;
+	}
+
+	/**
+	 * Switches profiling on or off for every run context created from now on. Profiling
+	 * needs every transition to be taken one at a time, so while it is on the plain
+	 * interpreter is used whichever engine is selected.
+	 **/
+	public void setProfiling(boolean profiling) {
+		this.profiling = profiling;
+	}
+
+	/**
+	 * Switches cycle detection on or off for every run context created from now on. An
+	 * input the machine can be shown never to halt on is then given up on as soon as
+	 * that is found, as DOES_NOT_HALT, rather than when its step budget runs out. As
+	 * with profiling, cycle detection uses the plain interpreter.
+	 **/
+	public void setCycleDetection(boolean detecting_cycles) {
+		this.detecting_cycles = detecting_cycles;
+	}
+
+	/**
+	 * Sets the trace every run context created from now on records its transitions to,
+	 * or null for none. As with profiling, tracing uses the plain interpreter. A trace
+	 * has a single writer, so only one context at a time should be using it.
+	 **/
+	public void setTrace(TraceWriter trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * Sets a cache of decisions that every run context created from now on consults
+	 * before running an input, and adds its decisions to, or null for none. The cache
+	 * is keyed by this machine's content hash, so it can be shared with other machines.
+	 * Profiled and traced runs always run in full.
+	 **/
+	public void setDecisionCache(DecisionCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Sets a trie of prefix snapshots that every run context created from now on resumes
+	 * runs from, and snapshots runs into, or null for none. Snapshots are taken by the
+	 * plain interpreter, so it is used whichever engine is selected, and they hold this
+	 * machine's state ids, so the trie must not be shared with other machines.
+	 **/
+	public void setPrefixSnapshots(PrefixSnapshots snapshots) {
+		this.snapshots = snapshots;
+	}
+
+	/**
+	 * Sets the checkpoints that every run context created from now on resumes runs from
+	 * and checkpoints long runs into, or null for none. Checkpoints are taken by the
+	 * plain interpreter, so it is used whichever engine is selected, and they hold this
+	 * machine's state ids. Nondeterministic and multi-tape machines are not checkpointed.
+	 **/
+	public void setCheckpoints(Checkpoints checkpoints) {
+		this.checkpoints = checkpoints;
+	}
+
+	/**
+	 * Allows more than one transition for the same state and input, and evaluates
+	 * inputs by exploring every branch of the run. This must be set before initialise,
+	 * and the engine, profiling and tracing settings are ignored while it is on.
+	 **/
+	public void setNondeterministic(boolean nondeterministic) {
+		this.nondeterministic = nondeterministic;
+	}
+
+	/**
+	 * Sets the most configurations a nondeterministic run may hold at each step, past
+	 * which it gives up on the input as undecided.
+	 **/
+	public void setConfigurationBudget(long budget) {
+		this.configuration_budget = budget;
+	}
+
+	/**
+	 * Sets how many threads nondeterministic run contexts explore branches with. They
+	 * share one pool of that many workers, which sit idle between runs and exit once
+	 * they have been idle for a while, as the workers of any fork-join pool do.
+	 **/
+	public void setBranchThreads(int threads) {
+		this.branch_threads = threads;
+	}
+
+	/**
+	 * Sets where every run context created from now on reports the inputs it runs, or
+	 * null to stop reporting. Contexts running in parallel share the same metrics.
+	 **/
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Takes a machine description and parses it for its number of states, the set
+	 * of states including the accept and reject states, the alphabet, and the 
+	 * transition table. Throws an InputException if any of these fail to parse, and 
+	 * throws a FileNotFoundException if there is no file.
+	 * 
+	 * The file is read in a single pass and every check is a hash lookup, so loading
+	 * takes time linear in the size of the description. Once parsed, the transition
+	 * table is compiled into flat arrays so that each step of the machine is a single
+	 * lookup rather than a scan of the table.
+	 *
+	 * A .tmc file written by save already holds those arrays, so it is memory-mapped and
+	 * loaded as it is, without any parsing.
+	 *
+	 * The alphabet may be followed by a line 'tapes k' for a machine with k tapes, each
+	 * of whose transitions then gives k inputs, k outputs and k moves.
+	 */
+	public void initialise(String turing_description) throws InputException, FileNotFoundException {
+		if(turing_description.endsWith(MachineFile.EXTENSION)) {
+			load(turing_description);
+			return;
+		}
+
+		DescriptionReader reader = new DescriptionReader(new File(turing_description));
+
+		retrieveN(reader.nextFields());
+
+		states = new State[n];
+		state_ids = new HashMap<String, Integer>();
+		statuses = new HashSet<String>();
+
+		for(int i = 0; i < n; i++)
+			retrieveState(reader.nextFields(), i);
+
+		retrieveAlphabet(reader.nextFields());
+
+		transition_table = new ArrayList<Transition>();
+		transition_keys = new HashSet<Long>();
+
+		tapes = 1;
+		boolean first = true;
+		while(reader.hasNext()) {
+			String[] components = reader.nextFields();
+			if(first && isTapesLine(components))
+				retrieveTapes(components);
+			else
+				retrieveTransition(components);
+			first = false;
+		}
+
+		compiled = new CompiledMachine(states, alphabet, transition_table, tapes);
+
+		state_ids = null;
+		statuses = null;
+		symbols = null;
+		transition_keys = null;
+		tape_symbol_ids = null;
+	}
+
+	private void load(String compiled_machine) throws InputException, FileNotFoundException {
+		MachineFile file = MachineFile.read(compiled_machine);
+		compiled = file.machine;
+		alphabet = file.alphabet;
+		states = new State[compiled.getStateCount()];
+		for(int i = 0; i < states.length; i++)
+			states[i] = compiled.getState(i);
+		n = states.length;
+		tapes = 1;
+		transition_table = null;
+	}
+
+	/**
+	 * Analyses the machine for unreachable states, missing transitions and loops that
+	 * can never halt, and prunes the transitions out of unreachable states, which can
+	 * never fire, from the compiled machine. Run contexts created before this keep the
+	 * machine as it was.
+	 **/
+	public MachineAnalysis analyse() {
+		MachineAnalysis analysis = new MachineAnalysis(compiled);
+		if(analysis.getDeadTransitions() > 0) {
+			compiled = analysis.getPrunedMachine();
+			program = null;
+			jit_unavailable = false;
+			if(transition_table != null) {
+				HashSet<State> unreachable = new HashSet<State>(analysis.getUnreachableStates());
+				transition_table.removeIf(t -> unreachable.contains(t.getInitialState()));
+			}
+		}
+		return analysis;
+	}
+
+	/**
+	 * Writes the compiled machine to a .tmc file, which initialise can load later
+	 * without parsing the description again.
+	 **/
+	public void save(String compiled_machine) throws IOException {
+		MachineFile.write(compiled, alphabet, compiled_machine);
+	}
+
+	/**
+	 * Creates a fresh run context for evaluating inputs against this machine with the
+	 * chosen engine, or for a nondeterministic machine, one that explores its branches.
+	 * The compiled machine is shared, so contexts are cheap and one can be kept per
+	 * thread.
+	 **/
+	public Evaluator newRunContext() {
+		return newRunContext(System.out);
+	}
+
+	public Evaluator newRunContext(PrintStream out) {
+		Evaluator context;
+		// nondeterministic and multi-tape machines have an engine of their own
+		boolean own_engine = nondeterministic || tapes > 1;
+		boolean step_by_step = !own_engine && (profiling || trace != null);
+		boolean interpreted = step_by_step || (!own_engine && (detecting_cycles || snapshots != null || checkpoints != null));
+		JitProgram jit = engine == Engine.JIT && !interpreted && !own_engine ? getJitProgram() : null;
+		if(nondeterministic) {
+			NondeterministicRunContext explorer = new NondeterministicRunContext(compiled, out, getBranchPool());
+			explorer.setConfigurationBudget(configuration_budget);
+			context = explorer;
+		}
+		else if(tapes > 1)
+			context = new MultiTapeRunContext(compiled, out);
+		else if(interpreted) {
+			RunContext interpreter = new RunContext(compiled, out);
+			interpreter.setProfiling(profiling);
+			interpreter.setTrace(trace);
+			interpreter.setCycleDetection(detecting_cycles);
+			interpreter.setPrefixSnapshots(snapshots);
+			interpreter.setCheckpoints(checkpoints);
+			context = interpreter;
+		}
+		else if(engine == Engine.MACRO)
+			context = new MacroRunContext(compiled, out);
+		else if(engine == Engine.PACKED)
+			context = new PackedRunContext(compiled, out);
+		else if(jit != null)
+			context = new JitRunContext(compiled, out, jit);
+		else
+			context = new RunContext(compiled, out);
+		if(cache != null && !step_by_step)
+			context = new CachedEvaluator(context, cache);
+		if(metrics != null)
+			context = new MeteredEvaluator(context, metrics);
+		context.setMaxSteps(max_steps);
+		context.setTimeout(timeout);
+		return context;
+	}
+
+	/**
+	 * Creates the pool nondeterministic run contexts share the first time one needs it,
+	 * replacing it if the number of threads has changed since. Returns null if branches
+	 * are explored by a single thread.
+	 **/
+	private synchronized ForkJoinPool getBranchPool() {
+		if(branch_threads <= 1)
+			return null;
+		if(branch_pool == null || branch_pool.getParallelism() != branch_threads) {
+			if(branch_pool != null)
+				branch_pool.shutdown();
+			branch_pool = new ForkJoinPool(branch_threads);
+		}
+		return branch_pool;
+	}
+
+	/**
+	 * Generates the JIT program the first time it is needed and shares it between all
+	 * run contexts. Returns null if the machine is too large to compile, ASM is not on
+	 * the classpath or this is a native image, which cannot load classes at run time,
+	 * in which case the interpreter is used instead.
+	 **/
+	private synchronized JitProgram getJitProgram() {
+		if(NATIVE_IMAGE)
+			return null;
+		if(program == null && !jit_unavailable) {
+			try {
+				program = JitCompiler.compile(compiled);
+			}
+			catch(NoClassDefFoundError e) {
+				program = null;
+			}
+			jit_unavailable = program == null;
+		}
+		return program;
+	}
+
+	/**
+	 * Takes in an input line from the input file and the interactive and performance
+	 * flags, and evaluates it in a new run context, so this may be called from several
+	 * threads at once. Throws an InputException if the input line is malformed.
+	 **/
+	public boolean canAccept(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		return newRunContext().canAccept(input, i_mode, p_mode);
+	}
+
+	/**
+	 * As canAccept, but also tells apart an input the machine rejects from one it gave
+	 * up on because of the step budget or timeout.
+	 **/
+	public Result run(CharSequence input, boolean i_mode, boolean p_mode) throws InputException {
+		return newRunContext().run(input, i_mode, p_mode);
+	}
+
+	/**
+	 * Gets the number of states. This number must be greater than 0 and less than 
+	 * Integer.MAX_VALUE. Throws an InputException if it isn't.
+	 **/
+	private void retrieveN(String[] components) throws InputException {
+		if(components.length != N_LINE_SIZE)
+			throw new InputException("Error: first line of machine description should be 'states n', where n is the number of states");
+
+		n = parse(components[1]);
+		if(n < 0 || n > Integer.MAX_VALUE)
+			throw new InputException("Error: number of states too large for java int data type.");
+
+	}
+
+	/**
+	 * Attempts to parse the number of states. Essentially converts a 
+	 * NumberFormatException to an InputException if it fails.
+	 **/
+	private int parse(String input) throws InputException {
+		try {
+			n = Integer.parseInt(input);
+			return n;
+		}
+		catch (NumberFormatException e) {
+			throw new InputException("Error: n (number of states) is not a number");
+		}
+	}
+
+	/**
+	 * Retrieves a state, which must have a unique name, and there must be exactly one
+	 * accept state, and exactly one reject state. There must also be n states, and 
+	 * n - 2 'default' states.
+	 * Throws an InputException if the line has too many elements, or too few, or if
+	 * a state already exists with the same name or if there are multiple accept/reject
+	 * states.
+	 **/
+	private void retrieveState(String[] components, int counter) throws InputException {
+		if(components.length > MAX_STATE_SIZE || components.length == 0)
+			throw new InputException("Error: states are either of the form 'state_name' or 'state_name status', one state per line");
+
+		String name, status;
+		name = components[0];
+		if(components.length > NORMAL_STATE_SIZE)
+			status = components[1];
+		else
+			status = "";
+
+		if(uniqueName(name) && uniqueValidStatus(status)) {
+			State state = new State(name, status);
+			states[counter] = state;
+			state_ids.put(name, counter);
+			if(!state.isDefault())
+				statuses.add(status);
+		}
+	}
+
+	private boolean uniqueName(String name) throws InputException {
+		if(state_ids.containsKey(name))
+			throw new InputException("Error: duplicate states");
+
+		return true;
+	}
+
+	/**
+	 * Checks if two states have the same status. If both are identical non-default states,
+	 * throws an InputException.
+	 **/
+	private boolean uniqueValidStatus(String status) throws InputException {
+		if(statuses.contains(status))
+			throw new InputException("Error: a machine cannot have more than one accept state and one reject state");
+
+		return true;
+	}
+
+	/**
+	 * Retrieves the input alphabet. Throws an InputException if the alphabet keyword is
+	 * missing, the size of the alphabet is missing or not parseable, or if the size
+	 * of the alphabet does not correspond to the number of characters provided.
+	 **/
+	private void retrieveAlphabet(String[] components) throws InputException {
+
+		if(!components[0].equals("alphabet"))
+			throw new InputException("Error: following states given, next line should be of the form\n" + 
+					"Error: 'alphabet x a1, a2 ... ax where x is the size of the alphabet and a1, a2 ... ax are the characters");
+
+		int alpha = 0;
+		try {
+			alpha = Integer.parseInt(components[1]);
+		}
+		catch(NumberFormatException e) {
+			throw new InputException("Error: alphabet must have a defined size");
+		}
+
+		if(components.length != alpha + 2)
+			throw new InputException("Error: The size of the alphabet does not match the number of arguments entered");
+
+		alphabet = new char[alpha];
+		symbols = new BitSet();
+
+		for(int i = 0; i < alpha; i++) {
+			alphabet[i] = retrieveSymbol(components[i + 2]);
+			symbols.set(alphabet[i]);
+		}
+		symbols.set(Transition.emptyCharacter());
+	}
+
+	private boolean isTapesLine(String[] components) {
+		return components.length == TAPES_LINE_SIZE && components[0].equals(TAPES_KEYWORD);
+	}
+
+	/**
+	 * Retrieves the number of tapes. Throws an InputException if it is not a positive
+	 * number, if the machine is nondeterministic, which only a single tape supports, or
+	 * if the transition table would be too large for this many tapes.
+	 **/
+	private void retrieveTapes(String[] components) throws InputException {
+		try {
+			tapes = Integer.parseInt(components[1]);
+		}
+		catch(NumberFormatException e) {
+			throw new InputException("Error: the number of tapes must be a positive number");
+		}
+		if(tapes < 1)
+			throw new InputException("Error: the number of tapes must be a positive number");
+		if(tapes > 1 && nondeterministic)
+			throw new InputException("Error: a nondeterministic machine can only have one tape");
+
+		long size = n;
+		for(int i = 0; i < tapes && size <= MAX_TABLE_SIZE; i++)
+			size *= alphabet.length + 1;
+		if(size > MAX_TABLE_SIZE)
+			throw new InputException("Error: the transition table for " + tapes + " tapes would be too large");
+
+		tape_symbol_ids = new int[symbols.length()];
+		int id = 0;
+		for(int c = symbols.nextSetBit(0); c >= 0; c = symbols.nextSetBit(c + 1))
+			tape_symbol_ids[c] = id++;
+	}
+
+	private char retrieveSymbol(String component) {
+		return component.charAt(0);
+	}
+
+	/**
+	 * Parses a transition line for its 5 components.
+	 * Throws an InputException if the number of components is not 5, if there is a
+	 * missing/invalid state name, a missing/invalid character, or a missing/invalid
+	 * move.
+	 **/
+	private void retrieveTransition(String[] components) throws InputException {
+		if(tapes > 1) {
+			retrieveMultiTapeTransition(components);
+			return;
+		}
+		if(components.length != TRANSITION_LENGTH)
+			throw new InputException("Error: Transitions must be of the form:\n<state1> <tape_input> <state2> <tape_output> <move>");
+		State state1 = findStateWithName(components[0]);
+		char tape_input = findSymbolMatching(components[1]);
+		State state2 = findStateWithName(components[2]);
+		char tape_output = findSymbolMatching(components[3]);
+		Move move = new Move(components[4]);
+		Transition t = new Transition(state1, tape_input, state2, tape_output, move);
+		addToTable(t);
+	}
+
+	/**
+	 * Parses a transition of a machine with k tapes for its 3k + 2 components: the
+	 * state, the k symbols read, the next state, the k symbols written and the k moves,
+	 * which may also be S for a head that stays where it is.
+	 * Throws an InputException as retrieveTransition does.
+	 **/
+	private void retrieveMultiTapeTransition(String[] components) throws InputException {
+		if(components.length != 3 * tapes + 2)
+			throw new InputException("Error: Transitions on a machine with " + tapes + " tapes must be of the form:\n"
+					+ "<state1> <tape_input> x " + tapes + " <state2> <tape_output> x " + tapes + " <move> x " + tapes);
+		State state1 = findStateWithName(components[0]);
+		char[] tape_inputs = new char[tapes];
+		for(int i = 0; i < tapes; i++)
+			tape_inputs[i] = findSymbolMatching(components[1 + i]);
+		State state2 = findStateWithName(components[1 + tapes]);
+		char[] tape_outputs = new char[tapes];
+		for(int i = 0; i < tapes; i++)
+			tape_outputs[i] = findSymbolMatching(components[2 + tapes + i]);
+		Move[] moves = new Move[tapes];
+		for(int i = 0; i < tapes; i++)
+			moves[i] = new Move(components[2 + 2 * tapes + i], true);
+		addToTable(new Transition(state1, tape_inputs, state2, tape_outputs, moves));
+	}
+
+	private State findStateWithName(String name) throws InputException {
+		Integer id = state_ids.get(name);
+		if(id != null)
+			return states[id];
+		throw new InputException("Error: No state found in set with name " + name);
+	}
+
+	/**
+	 * Determines whether the symbol provided is in the tape alphabet. Note that this 
+	 * includes the empty character ('_') which the input alphabet does not need to 
+	 * include.
+	 * Throws an InputException if there is no symbol that matches.
+	 **/
+	private char findSymbolMatching(String symbol) throws InputException {
+		char character_symbol = symbol.charAt(0);
+		if(symbols.get(character_symbol))
+			return character_symbol;
+		throw new InputException("Error: The input " + symbol + " is not defined in the alphabet");
+	}
+
+	/**
+	 * Checks if the transition provided already exists (unless this is a
+	 * nondeterministic TM), and throws an InputException if so.
+	 **/
+	private void addToTable(Transition t) throws InputException {
+		long key = (long) state_ids.get(t.getInitialState().getName()) << Character.SIZE | t.getTapeInput();
+		if(tapes > 1) {
+			key = state_ids.get(t.getInitialState().getName());
+			for(int i = 0; i < tapes; i++)
+				key = key * (alphabet.length + 1) + tape_symbol_ids[t.getTapeInput(i)];
+		}
+		if(!transition_keys.add(key) && !nondeterministic)
+			throw new InputException("Error: cannot have more than one transition for the same input/state pair, this is a determinisitic turing machine");
+
+		transition_table.add(t);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,695 @@
+package turing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class EngineTestRunner {
+
+	private static final String[] MACHINES = {"binary", "counter", "digital", "identity", "palindrome"};
+	private static final String[] OUTCOMES = {"accept", "reject"};
+
+	/**
+	 * Runs every input of the small accept/reject corpus for every bundled machine on
+	 * the plain interpreter and on the given engine, and checks that both give the same
+	 * result after the same number of steps.
+	 **/
+	private void assertMatchesInterpreter(Engine engine, long max_steps) throws IOException, InputException {
+		for(String name : MACHINES) {
+			TuringMachine machine = new TuringMachine();
+			machine.initialise("machine_descriptions/" + name + ".txt");
+			machine.setMaxSteps(max_steps);
+			PrintStream out = new PrintStream(new ByteArrayOutputStream());
+			Evaluator expected = machine.newRunContext(out);
+			machine.setEngine(engine);
+			Evaluator actual = machine.newRunContext(out);
+
+			for(String outcome : OUTCOMES) {
+				List<String> inputs = Files.readAllLines(Paths.get("test_inputs/" + outcome + "_" + name + ".txt"));
+				for(String input : inputs) {
+					String message = name + " on " + input;
+					assertEquals(message, expected.run(input, false, false), actual.run(input, false, false));
+					assertEquals(message, expected.getNumberOfSteps(), actual.getNumberOfSteps());
+				}
+			}
+		}
+	}
+
+	@org.junit.Test
+	public void testMacroStepsMatchInterpreter() throws IOException, InputException {
+		assertMatchesInterpreter(Engine.MACRO, Long.MAX_VALUE);
+	}
+
+	@org.junit.Test
+	public void testMacroStepsMatchInterpreterWithinStepBudget() throws IOException, InputException {
+		assertMatchesInterpreter(Engine.MACRO, 100);
+	}
+
+	@org.junit.Test
+	public void testPackedMatchesInterpreter() throws IOException, InputException {
+		assertMatchesInterpreter(Engine.PACKED, Long.MAX_VALUE);
+	}
+
+	@org.junit.Test
+	public void testPackedMatchesInterpreterWithinStepBudget() throws IOException, InputException {
+		assertMatchesInterpreter(Engine.PACKED, 100);
+	}
+
+	@org.junit.Test
+	public void testTapeGrowsBothWays() {
+		Tape tape = new Tape("ab");
+		for(int i = 2; i < 100000; i++)
+			tape.write(i, (char) ('a' + i % 2));
+		for(int i = -1; i >= -100000; i--)
+			tape.write(i, (char) ('a' + -i % 2));
+		for(int i = -100000; i < 100000; i++)
+			assertEquals(i + "", (char) ('a' + Math.abs(i) % 2), tape.read(i));
+		assertEquals(Transition.emptyCharacter(), tape.read(100000));
+		assertEquals(Transition.emptyCharacter(), tape.read(-100001));
+		// doubling leaves at most as much spare storage as is used
+		assertEquals(true, tape.getCapacity() < 4 * 200000);
+	}
+
+	@org.junit.Test
+	public void testPackedTapeGrowsBothWays() {
+		PackedTape tape = new PackedTape(3, 21, 0);
+		for(int i = 0; i < 1000000; i++)
+			tape.write(i, 1 + i % 5);
+		for(int i = -1; i >= -1000000; i--)
+			tape.write(i, 1 + -i % 5);
+		for(int i = -1000000; i < 1000000; i++)
+			assertEquals(i + "", 1 + Math.abs(i) % 5, tape.read(i));
+		assertEquals(0, tape.read(1000000));
+		assertEquals(0, tape.read(-1000001));
+		assertEquals(true, tape.getCapacity() < 4 * 2000000);
+	}
+
+	@org.junit.Test
+	public void testPackedTapeScansRuns() {
+		// 3 bits a cell and 21 cells a word, so runs cross several words
+		PackedTape tape = new PackedTape(3, 21, 0);
+		for(int i = 0; i < 100; i++)
+			tape.write(i, i % 3 == 0 ? 6 : 5);
+		tape.write(70, 2);
+		int[] fives = {5};
+		int[] sweep = {5, 6};
+		assertEquals(0, tape.scan(0, fives, 1, Integer.MAX_VALUE));
+		assertEquals(2, tape.scan(1, fives, 1, Integer.MAX_VALUE));
+		assertEquals(70, tape.scan(0, sweep, 1, Integer.MAX_VALUE));
+		assertEquals(50, tape.scan(20, sweep, 1, 50));
+		assertEquals(29, tape.scan(99, sweep, -1, Integer.MAX_VALUE));
+		assertEquals(69, tape.scan(68, sweep, -1, Integer.MAX_VALUE));
+		assertEquals(0, tape.scan(70, sweep, 1, Integer.MAX_VALUE));
+		assertEquals(5, tape.scan(-5, new int[] {0}, 1, Integer.MAX_VALUE));
+	}
+
+	@org.junit.Test
+	public void testSweepsOnPalindrome() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		CompiledMachine compiled = machine.getCompiledMachine();
+		int sweeping = 0;
+		for(int state = 0; state < compiled.getStateCount(); state++) {
+			int[] right = compiled.getSweepSymbols(state, 1);
+			if(right == null)
+				continue;
+			sweeping++;
+			for(int symbol : right) {
+				int t = compiled.lookup(state, symbol);
+				assertEquals(state, compiled.getNextState(t));
+				assertEquals(symbol, compiled.getOutputSymbol(t));
+				assertEquals(1, compiled.getSweepMove(t));
+			}
+		}
+		assertEquals(true, sweeping > 0);
+
+		Tape tape = new Tape("abba_");
+		assertEquals(4, tape.scan(0, new char[] {'a', 'b'}, 1, Integer.MAX_VALUE));
+		assertEquals(3, tape.scan(3, new char[] {'a', 'b'}, -1, 3));
+		assertEquals(0, tape.scan(5, new char[] {'_'}, 1, Integer.MAX_VALUE));
+	}
+
+	@org.junit.Test
+	public void testJitMatchesInterpreter() throws IOException, InputException {
+		assertMatchesInterpreter(Engine.JIT, Long.MAX_VALUE);
+	}
+
+	@org.junit.Test
+	public void testJitMatchesInterpreterWithinStepBudget() throws IOException, InputException {
+		assertMatchesInterpreter(Engine.JIT, 100);
+	}
+
+	@org.junit.Test
+	public void testJitCompilesEveryMachine() throws IOException, InputException {
+		for(String name : MACHINES) {
+			TuringMachine machine = new TuringMachine();
+			machine.initialise("machine_descriptions/" + name + ".txt");
+			machine.setEngine(Engine.JIT);
+			assertEquals(name, JitRunContext.class, machine.newRunContext().getClass());
+		}
+	}
+
+	@org.junit.Test
+	public void testCompiledFileMatchesDescription() throws IOException, InputException {
+		for(String name : MACHINES) {
+			TuringMachine machine = new TuringMachine();
+			machine.initialise("machine_descriptions/" + name + ".txt");
+			File file = File.createTempFile(name, ".tmc");
+			file.deleteOnExit();
+			machine.save(file.getPath());
+			TuringMachine loaded = new TuringMachine();
+			loaded.initialise(file.getPath());
+
+			assertEquals(name, machine.getStates().length, loaded.getStates().length);
+			assertEquals(name, new String(machine.getAlphabet()), new String(loaded.getAlphabet()));
+			assertEquals(name, machine.getTransitionTable().size(), loaded.getTransitionTable().size());
+
+			PrintStream out = new PrintStream(new ByteArrayOutputStream());
+			Evaluator expected = machine.newRunContext(out);
+			Evaluator actual = loaded.newRunContext(out);
+			for(String outcome : OUTCOMES)
+				for(String input : Files.readAllLines(Paths.get("test_inputs/" + outcome + "_" + name + ".txt"))) {
+					assertEquals(name + " on " + input, expected.run(input, false, false), actual.run(input, false, false));
+					assertEquals(name + " on " + input, expected.getNumberOfSteps(), actual.getNumberOfSteps());
+				}
+		}
+	}
+
+	@org.junit.Test(expected = InputException.class)
+	public void testCompiledFileMustBeValid() throws IOException, InputException {
+		File file = File.createTempFile("invalid", ".tmc");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "states 3".getBytes());
+		new TuringMachine().initialise(file.getPath());
+	}
+
+	@org.junit.Test
+	public void testProfileOnPalindrome() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		machine.setProfiling(true);
+		Evaluator context = machine.newRunContext();
+
+		assertEquals(Result.ACCEPT, context.run("abcabcbacba_", false, false));
+		Profile profile = context.getProfile();
+		assertEquals(47, profile.getSteps());
+
+		CompiledMachine compiled = machine.getCompiledMachine();
+		long visits = 0;
+		for(int s = 0; s < compiled.getStateCount(); s++)
+			visits += profile.getStateVisits(s);
+		long firings = 0;
+		for(int t = 0; t < compiled.getStateCount() * compiled.getSymbolCount(); t++)
+			firings += profile.getTransitionFirings(t);
+		// the halting transition fires but is not counted as a step
+		assertEquals(48, firings);
+		assertEquals(49, visits);
+		assertEquals(profile.getMaxPosition() + 1, profile.getCellsTouched());
+
+		Profile total = new Profile(compiled);
+		total.add(profile);
+		assertEquals(Result.REJECT, context.run("abcabcbacb_", false, false));
+		total.add(context.getProfile());
+		assertEquals(47 + context.getProfile().getSteps(), total.getSteps());
+	}
+
+	@org.junit.Test
+	public void testMetricsCountEveryInput() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		InProcessMetrics metrics = new InProcessMetrics();
+		machine.setMetrics(metrics);
+		Evaluator context = machine.newRunContext();
+
+		context.run("abcabcbacba_", false, false);
+		context.run("abcabcbacb_", false, false);
+		long rejected_steps = context.getNumberOfSteps();
+		try {
+			context.run("abcd_", false, false);
+		}
+		catch(InputException e) {
+		}
+
+		assertEquals(1, metrics.getAccepted());
+		assertEquals(1, metrics.getRejected());
+		assertEquals(1, metrics.getErrors());
+		assertEquals(3, metrics.getLatencies().getCount());
+		assertEquals(47 + rejected_steps, metrics.getSteps());
+		// the cells the longest input used, not the storage the tape was allocated
+		assertEquals(12, metrics.getTapeHighWater());
+	}
+
+	@org.junit.Test
+	public void testCellsUsedPerInput() throws IOException, InputException {
+		for(String name : new String[] {"interpreter", "macro", "packed", "jit"}) {
+			TuringMachine machine = new TuringMachine();
+			machine.initialise("machine_descriptions/palindrome.txt");
+			machine.setEngine(Engine.named(name));
+			Evaluator context = machine.newRunContext();
+
+			context.run("ab".repeat(5000) + "_", false, false);
+			assertEquals(name, true, context.getCellsUsed() >= 10000 && context.getCellsUsed() <= 10001);
+			context.run("abcabcbacba_", false, false);
+			assertEquals(name, true, context.getCellsUsed() >= 11 && context.getCellsUsed() <= 12);
+			assertEquals(name, true, context.getTapeCells() >= 10000);
+		}
+	}
+
+	@org.junit.Test
+	public void testLatencyHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long value = 1; value <= 100000; value++)
+			histogram.record(value * 1000);
+
+		assertEquals(100000, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(100000000, histogram.getMax());
+		for(double percentile : new double[] {50, 90, 99, 99.9}) {
+			double expected = percentile * 1000000;
+			double actual = histogram.getPercentile(percentile);
+			assertEquals(String.valueOf(percentile), 1, actual / expected, 1.0 / 64);
+		}
+	}
+
+	@org.junit.Test
+	public void testTraceRecordsEveryTransition() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TraceWriter trace = new TraceWriter(bytes, machine.getCompiledMachine());
+		machine.setTrace(trace);
+		Evaluator context = machine.newRunContext();
+
+		List<String> inputs = Files.readAllLines(Paths.get("test_inputs/accept_palindrome.txt"));
+		long[] steps = new long[inputs.size()];
+		for(int i = 0; i < inputs.size(); i++) {
+			context.run(inputs.get(i), false, false);
+			steps[i] = context.getNumberOfSteps();
+		}
+		trace.close();
+
+		TraceReader reader = new TraceReader(new ByteArrayInputStream(bytes.toByteArray()), machine.getCompiledMachine());
+		for(int i = 0; i < inputs.size(); i++) {
+			assertEquals(inputs.get(i), reader.nextRun());
+			long count = 0;
+			while(reader.nextStep() != TraceReader.END_OF_RUN)
+				count++;
+			assertEquals(inputs.get(i), steps[i], count);
+			assertEquals(Result.ACCEPT, reader.getResult());
+		}
+		assertEquals(null, reader.nextRun());
+
+		// a machine of the same size but with one move changed cannot read it
+		String description = Files.readString(Paths.get("machine_descriptions/palindrome.txt"));
+		File changed = File.createTempFile("palindrome", ".txt");
+		changed.deleteOnExit();
+		Files.writeString(changed.toPath(), description.replace("q2 _ q3 _ L", "q2 _ q3 _ R"));
+		TuringMachine other = new TuringMachine();
+		other.initialise(changed.getPath());
+		try {
+			new TraceReader(new ByteArrayInputStream(bytes.toByteArray()), other.getCompiledMachine());
+			org.junit.Assert.fail("a trace was read against a different machine");
+		}
+		catch(InputException e) {
+			assertEquals("Error: the trace was not written for this machine", e.getMessage());
+		}
+	}
+
+	@org.junit.Test
+	public void testDecisionCacheMatchesInterpreter() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		DecisionCache cache = new DecisionCache(2, 1000);
+		machine.setDecisionCache(cache);
+		Evaluator context = machine.newRunContext();
+
+		assertEquals(Result.ACCEPT, context.run("abcabcbacba_", false, false));
+		assertEquals(Result.ACCEPT, context.run("abcabcbacba_", false, false));
+		assertEquals(47, context.getNumberOfSteps());
+		assertEquals(1, cache.getHits());
+
+		// a cached decision that needs more steps than the budget is not used
+		machine.setMaxSteps(47);
+		assertEquals(Result.UNDECIDED, machine.run("abcabcbacba_", false, false));
+
+		context.run("abcabcbacb_", false, false);
+		context.run("abcba_", false, false);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+
+		File file = File.createTempFile("decisions", ".tdc");
+		file.deleteOnExit();
+		cache.save(file.getPath());
+		DecisionCache loaded = new DecisionCache(10, 1000);
+		loaded.load(file.getPath());
+		assertEquals(2, loaded.size());
+		assertEquals(Result.ACCEPT, loaded.get(machine.getCompiledMachine(), "abcba_").getResult());
+		assertEquals(null, loaded.get(machine.getCompiledMachine(), "abcabcbacba_"));
+
+		// a file claiming an undecided run as a decision is not a cache put would write
+		try(DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(0x54444301);
+			out.writeInt(1);
+			out.writeLong(machine.getCompiledMachine().getContentHash());
+			out.writeByte(Result.UNDECIDED.ordinal());
+			out.writeLong(47);
+			out.writeInt(6);
+			out.writeChars("abcba_");
+		}
+		try {
+			new DecisionCache(10, 1000).load(file.getPath());
+			org.junit.Assert.fail("an undecided run was loaded as a decision");
+		}
+		catch(InputException e) {
+			assertEquals("Error: " + file.getPath() + " is not a saved decision cache", e.getMessage());
+		}
+	}
+
+	@org.junit.Test
+	public void testContentHashIgnoresStateNames() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		File file = File.createTempFile("palindrome", ".tmc");
+		file.deleteOnExit();
+		machine.save(file.getPath());
+		TuringMachine loaded = new TuringMachine();
+		loaded.initialise(file.getPath());
+		assertEquals(machine.getCompiledMachine().getContentHash(), loaded.getCompiledMachine().getContentHash());
+
+		TuringMachine other = new TuringMachine();
+		other.initialise("machine_descriptions/binary.txt");
+		assertNotEquals(machine.getCompiledMachine().getContentHash(), other.getCompiledMachine().getContentHash());
+	}
+
+	@org.junit.Test
+	public void testMacroStepsOnPalindrome() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		machine.setEngine(Engine.MACRO);
+		Evaluator context = machine.newRunContext();
+
+		assertEquals(Result.ACCEPT, context.run("abcabcbacba_", false, false));
+		assertEquals(47, context.getNumberOfSteps());
+		assertEquals(Result.REJECT, context.run("abcabcbacb_", false, false));
+	}
+
+	@org.junit.Test
+	public void testNondeterministicMatchesInterpreter() throws IOException, InputException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for(ForkJoinPool workers : new ForkJoinPool[] {null, pool}) {
+				for(String name : MACHINES) {
+					TuringMachine machine = new TuringMachine();
+					machine.initialise("machine_descriptions/" + name + ".txt");
+					Evaluator expected = machine.newRunContext();
+					Evaluator actual = new NondeterministicRunContext(machine.getCompiledMachine(),
+							new PrintStream(new ByteArrayOutputStream()), workers);
+
+					for(String outcome : OUTCOMES) {
+						List<String> inputs = Files.readAllLines(Paths.get("test_inputs/" + outcome + "_" + name + ".txt"));
+						for(String input : inputs) {
+							String message = name + " on " + input;
+							assertEquals(message, expected.run(input, false, false), actual.run(input, false, false));
+							assertEquals(message, expected.getNumberOfSteps(), actual.getNumberOfSteps());
+						}
+					}
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@org.junit.Test
+	public void testNondeterministicContainsAbba() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.setNondeterministic(true);
+		machine.initialise("machine_descriptions/ntm_contains_abba.txt");
+		Evaluator context = machine.newRunContext();
+		// the branches that fall off the end of a transition are meant to
+		assertEquals(List.of(), new MachineAnalysis(machine.getCompiledMachine(), false).getMissingTransitions());
+
+		assertEquals(Result.ACCEPT, context.run("abba", false, false));
+		assertEquals(3, context.getNumberOfSteps());
+		assertEquals(Result.ACCEPT, context.run("bababbabab", false, false));
+		assertEquals(Result.REJECT, context.run("abab", false, false));
+		assertEquals(4, context.getNumberOfSteps());
+
+		machine.setMaxSteps(3);
+		assertEquals(Result.UNDECIDED, machine.run("abba", false, false));
+
+		// with room for only one configuration per step the second branch is dropped
+		machine.setMaxSteps(Long.MAX_VALUE);
+		machine.setConfigurationBudget(1);
+		assertEquals(Result.UNDECIDED, machine.run("abba", false, false));
+		machine.setConfigurationBudget(2);
+		assertEquals(Result.ACCEPT, machine.run("abba", false, false));
+	}
+
+	@org.junit.Test
+	public void testNondeterministicMachineCannotBeCompiled() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.setNondeterministic(true);
+		machine.initialise("test_files/16_transition_duplicate.txt");
+		assertEquals(false, machine.getCompiledMachine().isDeterministic());
+
+		File file = File.createTempFile("duplicate", ".tmc");
+		file.deleteOnExit();
+		try {
+			machine.save(file.getPath());
+			org.junit.Assert.fail("a nondeterministic machine was compiled");
+		}
+		catch(IOException e) {
+			assertEquals("Error: only deterministic machines can be compiled to .tmc", e.getMessage());
+		}
+	}
+
+	@org.junit.Test
+	public void testTwoTapeIdentity() throws IOException, InputException {
+		TuringMachine one_tape = new TuringMachine();
+		one_tape.initialise("machine_descriptions/identity.txt");
+		TuringMachine two_tapes = new TuringMachine();
+		two_tapes.initialise("machine_descriptions/identity_2tape.txt");
+		assertEquals(2, two_tapes.getCompiledMachine().getTapeCount());
+		Evaluator expected = one_tape.newRunContext();
+		Evaluator actual = two_tapes.newRunContext();
+		assertEquals(MultiTapeRunContext.class, actual.getClass());
+
+		for(String input : Files.readAllLines(Paths.get("test_inputs/accept_identity.txt")))
+			assertEquals(input, Result.ACCEPT, actual.run(input, false, false));
+		for(String input : Files.readAllLines(Paths.get("test_inputs/reject_identity.txt")))
+			assertEquals(input, Result.REJECT, actual.run(input, false, false));
+
+		assertEquals(Result.ACCEPT, actual.run("abc#abc_", false, false));
+		assertEquals(11, actual.getNumberOfSteps());
+		assertEquals(Result.ACCEPT, expected.run("abc#abc_", false, false));
+		assertEquals(22, expected.getNumberOfSteps());
+	}
+
+	@org.junit.Test
+	public void testAnalysisFindsDeadStatesAndLoops() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("test_files/18_analysis.txt");
+		CompiledMachine unpruned = machine.getCompiledMachine();
+		MachineAnalysis cheap = new MachineAnalysis(unpruned, false);
+		assertEquals(List.of(), cheap.getNonHaltingLoops());
+		ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+		cheap.warn(new PrintStream(warnings, true), true);
+		assertEquals("Warning: state q3 cannot be reached from the start state" + System.lineSeparator()
+				+ "Warning: no transition for state and symbol q1 a" + System.lineSeparator(), warnings.toString());
+		warnings.reset();
+		cheap.warn(new PrintStream(warnings, true), false);
+		assertEquals("Warning: state q3 cannot be reached from the start state" + System.lineSeparator(), warnings.toString());
+
+		MachineAnalysis analysis = machine.analyse();
+
+		assertEquals(1, analysis.getUnreachableStates().size());
+		assertEquals("q3", analysis.getUnreachableStates().get(0).getName());
+		assertEquals(1, analysis.getDeadTransitions());
+		assertEquals(List.of("q1 a"), analysis.getMissingTransitions());
+		assertEquals(List.of("q1 moves right over blank tape forever", "q2 q4 repeats the same configuration forever"),
+				analysis.getNonHaltingLoops());
+
+		CompiledMachine pruned = machine.getCompiledMachine();
+		assertNotEquals(unpruned, pruned);
+		assertEquals(CompiledMachine.NO_TRANSITION, pruned.lookup(3, pruned.getSymbolId('a')));
+		assertEquals(11, machine.getTransitionTable().size());
+		machine.setMaxSteps(1000);
+		assertEquals(Result.ACCEPT, machine.run("_", false, false));
+		assertEquals(Result.UNDECIDED, machine.run("a", false, false));
+		assertEquals(Result.UNDECIDED, machine.run("bab", false, false));
+
+		for(String name : MACHINES) {
+			TuringMachine bundled = new TuringMachine();
+			bundled.initialise("machine_descriptions/" + name + ".txt");
+			CompiledMachine compiled = bundled.getCompiledMachine();
+			analysis = bundled.analyse();
+			assertEquals(name, 0, analysis.getDeadTransitions() + analysis.getNonHaltingLoops().size());
+			assertEquals(name, compiled, bundled.getCompiledMachine());
+		}
+	}
+
+	@org.junit.Test
+	public void testCycleDetectionMatchesInterpreter() throws IOException, InputException {
+		for(String name : MACHINES) {
+			TuringMachine machine = new TuringMachine();
+			machine.initialise("machine_descriptions/" + name + ".txt");
+			Evaluator expected = machine.newRunContext();
+			machine.setCycleDetection(true);
+			Evaluator actual = machine.newRunContext();
+
+			for(String outcome : OUTCOMES) {
+				List<String> inputs = Files.readAllLines(Paths.get("test_inputs/" + outcome + "_" + name + ".txt"));
+				for(String input : inputs) {
+					String message = name + " on " + input;
+					assertEquals(message, expected.run(input, false, false), actual.run(input, false, false));
+					assertEquals(message, expected.getNumberOfSteps(), actual.getNumberOfSteps());
+				}
+			}
+		}
+	}
+
+	@org.junit.Test
+	public void testCycleDetectionStopsLoops() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("test_files/18_analysis.txt");
+		machine.setMaxSteps(1000000);
+		assertEquals(Result.UNDECIDED, machine.run("a", false, false));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TraceWriter trace = new TraceWriter(bytes, machine.getCompiledMachine());
+		machine.setTrace(trace);
+		machine.setCycleDetection(true);
+		Evaluator context = machine.newRunContext();
+
+		// drifting right over blank tape
+		assertEquals(Result.DOES_NOT_HALT, context.run("a", false, false));
+		assertEquals(true, context.getNumberOfSteps() < 10);
+		// stepping back and forth between the same two cells
+		assertEquals(Result.DOES_NOT_HALT, context.run("bab", false, false));
+		assertEquals(true, context.getNumberOfSteps() < 10);
+		assertEquals(Result.ACCEPT, context.run("_", false, false));
+		trace.close();
+
+		TraceReader reader = new TraceReader(new ByteArrayInputStream(bytes.toByteArray()), machine.getCompiledMachine());
+		reader.nextRun();
+		while(reader.nextStep() != TraceReader.END_OF_RUN);
+		assertEquals(Result.DOES_NOT_HALT, reader.getResult());
+	}
+
+	@org.junit.Test
+	public void testPrefixSnapshotsMatchInterpreter() throws IOException, InputException {
+		for(String name : MACHINES) {
+			for(long max_steps : new long[] {Long.MAX_VALUE, 1000}) {
+				TuringMachine machine = new TuringMachine();
+				machine.initialise("machine_descriptions/" + name + ".txt");
+				machine.setMaxSteps(max_steps);
+				Evaluator expected = machine.newRunContext();
+				PrefixSnapshots snapshots = new PrefixSnapshots(1 << 16);
+				machine.setPrefixSnapshots(snapshots);
+				Evaluator actual = machine.newRunContext();
+
+				for(String outcome : OUTCOMES) {
+					List<String> inputs = Files.readAllLines(Paths.get("test_inputs/" + outcome + "_" + name + ".txt"));
+					for(String input : inputs) {
+						String message = name + " on " + input + " within " + max_steps;
+						assertEquals(message, expected.run(input, false, false), actual.run(input, false, false));
+						assertEquals(message, expected.getNumberOfSteps(), actual.getNumberOfSteps());
+					}
+				}
+			}
+		}
+	}
+
+	@org.junit.Test
+	public void testPrefixSnapshotsResumeSharedPrefixes() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/palindrome.txt");
+		PrefixSnapshots snapshots = new PrefixSnapshots(1 << 20);
+		machine.setPrefixSnapshots(snapshots);
+		Evaluator context = machine.newRunContext();
+
+		List<String> inputs = Files.readAllLines(Paths.get("test_inputs/accept_palindrome_large.txt"));
+		for(String input : inputs)
+			assertEquals(input, Result.ACCEPT, context.run(input, false, false));
+		assertEquals(1, snapshots.getMisses());
+		assertEquals(inputs.size() - 1, snapshots.getHits());
+		assertEquals(true, snapshots.getSkippedSteps() > 0);
+
+		// a trie too small for the longer snapshots keeps giving the same answers
+		PrefixSnapshots small = new PrefixSnapshots(64);
+		machine.setPrefixSnapshots(small);
+		context = machine.newRunContext();
+		for(String input : inputs.subList(0, 100))
+			assertEquals(input, Result.ACCEPT, context.run(input, false, false));
+		assertEquals(true, small.getEvictions() > 0);
+	}
+
+	@org.junit.Test
+	public void testCheckpointsResumeCutShortRuns() throws IOException, InputException {
+		TuringMachine machine = new TuringMachine();
+		machine.initialise("machine_descriptions/counter.txt");
+		Evaluator expected = machine.newRunContext();
+		List<String> inputs = Files.readAllLines(Paths.get("test_inputs/accept_counter_large.txt"));
+		inputs = inputs.subList(inputs.size() - 3, inputs.size());
+
+		File file = File.createTempFile("counter", ".tck");
+		file.deleteOnExit();
+		Checkpoints checkpoints = new Checkpoints(machine.getCompiledMachine(), file.getPath(), 100);
+		machine.setCheckpoints(checkpoints);
+		for(String input : inputs) {
+			expected.run(input, false, false);
+			machine.setMaxSteps(expected.getNumberOfSteps() / 2);
+			assertEquals(input, Result.UNDECIDED, machine.newRunContext().run(input, false, false));
+		}
+		checkpoints.close();
+		assertEquals(true, checkpoints.getWritten() > 0);
+
+		// resumed without the limit, each run picks up where it was cut short, and takes
+		// no checkpoints of its own, so only the runs being decided rewrite the file
+		Checkpoints resumed = new Checkpoints(machine.getCompiledMachine(), file.getPath(), 1L << 40);
+		resumed.load(file.getPath());
+		machine.setCheckpoints(resumed);
+		machine.setMaxSteps(Long.MAX_VALUE);
+		Evaluator actual = machine.newRunContext();
+		for(String input : inputs) {
+			assertEquals(input, expected.run(input, false, false), actual.run(input, false, false));
+			assertEquals(input, expected.getNumberOfSteps(), actual.getNumberOfSteps());
+		}
+		resumed.close();
+		assertEquals(inputs.size(), resumed.getResumed());
+		assertEquals(true, resumed.getSkippedSteps() > 0);
+
+		// every run was decided, so none of them is left in the file
+		Checkpoints reloaded = new Checkpoints(machine.getCompiledMachine(), file.getPath(), 100);
+		reloaded.load(file.getPath());
+		for(String input : inputs)
+			assertEquals(input, null, reloaded.find(input, Long.MAX_VALUE));
+		reloaded.close();
+
+		TuringMachine other = new TuringMachine();
+		other.initialise("machine_descriptions/palindrome.txt");
+		Checkpoints mismatched = new Checkpoints(other.getCompiledMachine(), file.getPath(), 100);
+		try {
+			mismatched.load(file.getPath());
+			org.junit.Assert.fail("a checkpoint of another machine was loaded");
+		}
+		catch(InputException e) {
+			assertEquals("Error: " + file.getPath() + " was checkpointed with a different machine", e.getMessage());
+		}
+		mismatched.close();
+	}
+
+}
@@ -1,3 +1,5 @@
+package turing;
+
 import java.io.*;
 
 import org.junit.Rule;
@@ -168,4 +170,13 @@ public class InitialisationTestRunner {
 		machine.initialise("test_files/16_transition_duplicate.txt");
 	}
 	
+	@org.junit.Test
+	public void testMultiTapeTransitionSize() throws FileNotFoundException, InputException {
+		TuringMachine machine = new TuringMachine();
+
+		thrown.expect(InputException.class);
+		thrown.expectMessage("Error: Transitions on a machine with 2 tapes must be of the form:");
+		machine.initialise("test_files/17_transition_tapes.txt");
+	}
+
 }